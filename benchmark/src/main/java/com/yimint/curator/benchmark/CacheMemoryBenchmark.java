@@ -0,0 +1,113 @@
+package com.yimint.curator.benchmark;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.zookeeper.CreateMode;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CuratorCache的初始化时间与每个节点占用的堆内存
+ * 每个节点的内存以bytesPerNode辅助计数器输出，是启动缓存前后两次full gc之后已用堆的差值除以节点数。
+ * full gc在每次调用前后的Setup/TearDown中执行，不计入测得的初始化时间；缓存在TearDown中测量内存之后关闭
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CacheMemoryBenchmark {
+
+    private static final String ROOT = "/benchmark/cache";
+    private static final int BATCH = 500;
+
+    @Param({"1000", "10000"})
+    public int nodes;
+
+    @Param({"128", "1024"})
+    public int payloadBytes;
+
+    private EmbeddedEnsemble ensemble;
+    private CuratorClientV510 client;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Memory {
+        public long bytesPerNode;
+        private long heapBefore;
+        CuratorCache cache;
+
+        @Setup(Level.Invocation)
+        public void before() {
+            heapBefore = usedHeap();
+        }
+
+        @TearDown(Level.Invocation)
+        public void after(CacheMemoryBenchmark benchmark) {
+            if (cache!=null) {
+                bytesPerNode = (usedHeap() - heapBefore) / benchmark.nodes;
+                cache.close();
+                cache = null;
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ensemble = new EmbeddedEnsemble(1);
+        client = ensemble.newClient();
+        client.createNode(CreateMode.PERSISTENT, ROOT, "");
+        byte[] payload = new byte[payloadBytes];
+        List<CuratorOp> ops = new ArrayList<>(BATCH);
+        for (int i = 0; i<nodes; i++) {
+            ops.add(client.getClient().transactionOp().create().forPath(ROOT + "/" + i, payload));
+            if (ops.size()==BATCH || i==nodes - 1) {
+                client.getClient().transaction().forOperations(ops);
+                ops.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.stop();
+        ensemble.close();
+    }
+
+    @Benchmark
+    public int startCache(Memory memory) throws InterruptedException {
+        CountDownLatch initialized = new CountDownLatch(1);
+        memory.cache = client.watch(ROOT, CuratorCacheListener.builder().forInitialized(initialized::countDown).build());
+        initialized.await(60, TimeUnit.SECONDS);
+        return (int) memory.cache.size();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i<3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
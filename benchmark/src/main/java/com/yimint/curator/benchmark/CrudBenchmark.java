@@ -0,0 +1,99 @@
+package com.yimint.curator.benchmark;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.zookeeper.CreateMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点读写的吞吐量与延迟分位数
+ * 例：java -jar benchmark/target/benchmarks.jar CrudBenchmark -p servers=3 -t 8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CrudBenchmark {
+
+    private static final String ROOT = "/benchmark/crud";
+    private static final int READ_NODES = 1000;
+
+    @Param({"1", "3"})
+    public int servers;
+
+    @Param({"128", "4096"})
+    public int payloadBytes;
+
+    @Param({"10", "1000"})
+    public int children;
+
+    private EmbeddedEnsemble ensemble;
+    private CuratorClientV510 client;
+    private String payload;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ensemble = new EmbeddedEnsemble(servers);
+        client = ensemble.newClient();
+        char[] chars = new char[payloadBytes];
+        Arrays.fill(chars, 'x');
+        payload = new String(chars);
+        for (int i = 0; i<READ_NODES; i++) {
+            client.createNode(CreateMode.PERSISTENT, ROOT + "/read/" + i, payload);
+        }
+        for (int i = 0; i<children; i++) {
+            client.createNode(CreateMode.PERSISTENT, ROOT + "/children/" + i, "");
+        }
+        client.createNode(CreateMode.PERSISTENT, ROOT + "/create", "");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.stop();
+        ensemble.close();
+    }
+
+    private String readPath() {
+        return ROOT + "/read/" + (sequence.getAndIncrement() % READ_NODES);
+    }
+
+    @Benchmark
+    public void createNode() {
+        client.createNode(CreateMode.PERSISTENT, ROOT + "/create/" + sequence.getAndIncrement(), payload);
+    }
+
+    @Benchmark
+    public String getNodeData() {
+        return client.getNodeData(readPath());
+    }
+
+    @Benchmark
+    public void setNodeData() {
+        client.setNodeData(readPath(), payload);
+    }
+
+    @Benchmark
+    public List<String> getChildren() {
+        return client.getChildren(ROOT + "/children");
+    }
+
+}
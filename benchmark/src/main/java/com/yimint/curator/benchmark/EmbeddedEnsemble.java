@@ -0,0 +1,80 @@
+package com.yimint.curator.benchmark;
+
+import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.exception.CuratorClientException;
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingCluster;
+import org.apache.curator.test.TestingServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的zookeeper，1个节点时使用TestingServer，多个节点时使用TestingCluster
+ */
+public class EmbeddedEnsemble implements Closeable {
+
+    private final TestingServer server;
+    private final TestingCluster cluster;
+
+    public EmbeddedEnsemble(int servers) throws Exception {
+        if (servers<=1) {
+            server = new TestingServer(true);
+            cluster = null;
+        } else {
+            server = null;
+            cluster = new TestingCluster(servers);
+            cluster.start();
+        }
+    }
+
+    public String getConnectString() {
+        return server!=null ? server.getConnectString() : cluster.getConnectString();
+    }
+
+    public TestingCluster getCluster() {
+        return cluster;
+    }
+
+    /**
+     * 建立并启动连接到当前集群的客户端
+     *
+     * @return 已连接的客户端
+     */
+    public CuratorClientV510 newClient() throws InterruptedException {
+        return newClient(30000, new RetryNTimes(3, 100));
+    }
+
+    /**
+     * 建立并启动连接到当前集群的客户端
+     *
+     * @param sessionTimeoutMs 会话超时时间
+     * @param retryPolicy      重试策略
+     * @return 已连接的客户端
+     */
+    public CuratorClientV510 newClient(int sessionTimeoutMs, RetryPolicy retryPolicy) throws InterruptedException {
+        CuratorClientV510 client = new CuratorClientV510(CuratorFrameworkFactory.builder()
+                .connectString(getConnectString())
+                .sessionTimeoutMs(sessionTimeoutMs)
+                .connectionTimeoutMs(15000)
+                .retryPolicy(retryPolicy), "utf8");
+        client.init();
+        if (!client.getClient().blockUntilConnected(30, TimeUnit.SECONDS)) {
+            throw new CuratorClientException("连接内嵌zookeeper超时：" + getConnectString());
+        }
+        return client;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (server!=null) {
+            server.close();
+        } else {
+            cluster.close();
+        }
+    }
+
+}
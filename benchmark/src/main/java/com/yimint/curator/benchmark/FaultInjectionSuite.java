@@ -0,0 +1,301 @@
+package com.yimint.curator.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.Data;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.curator.retry.BoundedExponentialBackoffRetry;
+import org.apache.curator.test.InstanceSpec;
+import org.apache.curator.test.TestingCluster;
+import org.apache.zookeeper.CreateMode;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 故障注入测试，测量zookeeper节点故障和会话过期时应用受影响的时长
+ * 每个场景启动一个新的3节点TestingCluster，客户端持续读写、循环加锁并通过watch()缓存一个节点，注入故障后测量：
+ * 重新连接的时间、watch()缓存重新看到最新数据的时间、重新获得锁的时间以及期间失败的操作数。
+ *
+ * 场景：
+ * kill-connected      杀掉客户端当前连接的节点，稍后重启
+ * session-expiry      注入会话过期
+ * minority-partition  杀掉其余两个节点，客户端所在节点失去法定人数（TestingCluster无法模拟网络分区，以此近似），outageMs后恢复
+ *
+ * java -cp benchmark/target/benchmarks.jar com.yimint.curator.benchmark.FaultInjectionSuite \
+ *     --sessionTimeoutMs=10000 --baseSleepMs=100 --maxSleepMs=2000 --maxRetries=5 --outageMs=5000 --out=fault-report.json
+ */
+public class FaultInjectionSuite {
+
+    private static final String DATA = "/fault/data";
+    private static final String CACHED = "/fault/cached";
+    private static final String LOCK = "/fault/lock";
+    private static final long RECOVERY_TIMEOUT_MS = 120000;
+
+    private final int sessionTimeoutMs;
+    private final int baseSleepMs;
+    private final int maxSleepMs;
+    private final int maxRetries;
+    private final long outageMs;
+
+    public FaultInjectionSuite(Map<String, String> options) {
+        this.sessionTimeoutMs = Integer.parseInt(options.getOrDefault("sessionTimeoutMs", "10000"));
+        this.baseSleepMs = Integer.parseInt(options.getOrDefault("baseSleepMs", "100"));
+        this.maxSleepMs = Integer.parseInt(options.getOrDefault("maxSleepMs", "2000"));
+        this.maxRetries = Integer.parseInt(options.getOrDefault("maxRetries", "5"));
+        this.outageMs = Long.parseLong(options.getOrDefault("outageMs", "5000"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式为--name=value：" + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        FaultInjectionSuite suite = new FaultInjectionSuite(options);
+        String only = options.get("scenario");
+        List<Result> results = new ArrayList<>();
+        for (Scenario scenario : Scenario.values()) {
+            if (only==null || only.equals(scenario.id)) {
+                results.add(suite.run(scenario));
+            }
+        }
+        System.out.println();
+        System.out.printf("%-20s %12s %12s %12s %8s %8s%n", "scenario", "reconnectMs", "cacheMs", "lockMs", "failed", "total");
+        for (Result result : results) {
+            System.out.printf("%-20s %12d %12d %12d %8d %8d%n", result.getScenario(), result.getReconnectMs(),
+                    result.getCacheConsistentMs(), result.getLockReacquireMs(), result.getFailedOps(), result.getTotalOps());
+        }
+        if (options.containsKey("out")) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("timestamp", System.currentTimeMillis());
+            report.put("options", options);
+            report.put("results", results);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(options.get("out")), report);
+        }
+        System.exit(0);
+    }
+
+    enum Scenario {
+        KILL_CONNECTED("kill-connected"),
+        SESSION_EXPIRY("session-expiry"),
+        MINORITY_PARTITION("minority-partition");
+
+        final String id;
+
+        Scenario(String id) {
+            this.id = id;
+        }
+    }
+
+    private Result run(Scenario scenario) throws Exception {
+        System.out.println("running " + scenario.id);
+        try (EmbeddedEnsemble ensemble = new EmbeddedEnsemble(3)) {
+            TestingCluster cluster = ensemble.getCluster();
+            CuratorClientV510 client = ensemble.newClient(sessionTimeoutMs,
+                    new BoundedExponentialBackoffRetry(baseSleepMs, maxSleepMs, maxRetries));
+            CuratorClientV510 writer = ensemble.newClient();
+            client.createNode(CreateMode.PERSISTENT, DATA, "0");
+            client.createNode(CreateMode.PERSISTENT, CACHED, "0");
+
+            CompletableFuture<Boolean> initialized = new CompletableFuture<>();
+            AtomicReference<String> cachedValue = new AtomicReference<>();
+            CuratorCache cache = client.watch(CACHED, CuratorCacheListener.builder()
+                    .forCreatesAndChanges((oldNode, node) -> cachedValue.set(new String(node.getData(), StandardCharsets.UTF_8)))
+                    .forInitialized(() -> initialized.complete(true))
+                    .build());
+            initialized.get(30, TimeUnit.SECONDS);
+
+            Load load = new Load(client);
+            load.start();
+            TimeUnit.SECONDS.sleep(2);
+
+            CompletableFuture<Long> reconnected = new CompletableFuture<>();
+            long[] faultAt = new long[1];
+            ConnectionStateListener listener = (c, state) -> {
+                if (faultAt[0]>0 && (state==ConnectionState.RECONNECTED || state==ConnectionState.CONNECTED)) {
+                    reconnected.complete(System.currentTimeMillis());
+                }
+            };
+            client.getClient().getConnectionStateListenable().addListener(listener);
+
+            InstanceSpec connected = cluster.findConnectionInstance(client.getClient().getZookeeperClient().getZooKeeper());
+            List<InstanceSpec> killed = new ArrayList<>();
+            faultAt[0] = System.currentTimeMillis();
+            load.faultAt = faultAt[0];
+            switch (scenario) {
+                case KILL_CONNECTED:
+                    cluster.killServer(connected);
+                    killed.add(connected);
+                    break;
+                case SESSION_EXPIRY:
+                    client.getClient().getZookeeperClient().getZooKeeper().getTestable().injectSessionExpiration();
+                    break;
+                case MINORITY_PARTITION:
+                    for (InstanceSpec instance : cluster.getInstances()) {
+                        if (!instance.equals(connected)) {
+                            cluster.killServer(instance);
+                            killed.add(instance);
+                        }
+                    }
+                    TimeUnit.MILLISECONDS.sleep(outageMs);
+                    for (InstanceSpec instance : killed) {
+                        cluster.restartServer(instance);
+                    }
+                    killed.clear();
+                    break;
+                default:
+                    throw new IllegalStateException(scenario.name());
+            }
+
+            Result result = new Result();
+            result.setScenario(scenario.id);
+            result.setReconnectMs(elapsed(faultAt[0], reconnected));
+            result.setCacheConsistentMs(measureCache(writer, cachedValue, faultAt[0]));
+            // 故障被客户端感知前的加锁不算，只统计重新连接之后的第一次加锁
+            long recoveredAt = result.getReconnectMs()>=0 ? faultAt[0] + result.getReconnectMs() : Long.MAX_VALUE;
+            long lockDeadline = System.currentTimeMillis() + RECOVERY_TIMEOUT_MS;
+            while (load.lockAcquiredAt.get()<recoveredAt && System.currentTimeMillis()<lockDeadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            result.setLockReacquireMs(load.lockAcquiredAt.get()>=recoveredAt ? load.lockAcquiredAt.get() - faultAt[0] : -1);
+            load.stop();
+            result.setFailedOps(load.failedAfterFault.get());
+            result.setTotalOps(load.total.get());
+            for (InstanceSpec instance : killed) {
+                cluster.restartServer(instance);
+            }
+            client.getClient().getConnectionStateListenable().removeListener(listener);
+            cache.close();
+            writer.stop();
+            client.stop();
+            System.out.println(result);
+            return result;
+        }
+    }
+
+    /**
+     * 从另一个会话写入新值，直到被测客户端的缓存看到这个值
+     */
+    private long measureCache(CuratorClientV510 writer, AtomicReference<String> cachedValue, long faultAt) throws InterruptedException {
+        String marker = Long.toString(faultAt);
+        long deadline = faultAt + RECOVERY_TIMEOUT_MS;
+        boolean written = false;
+        while (System.currentTimeMillis()<deadline) {
+            if (!written) {
+                try {
+                    writer.setNodeData(CACHED, marker);
+                    written = true;
+                } catch (CuratorClientException e) {
+                    // 写入方也可能受故障影响，继续重试
+                }
+            }
+            if (written && marker.equals(cachedValue.get())) {
+                return System.currentTimeMillis() - faultAt;
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        return -1;
+    }
+
+    private static long elapsed(long faultAt, CompletableFuture<Long> future) {
+        try {
+            return future.get(RECOVERY_TIMEOUT_MS, TimeUnit.MILLISECONDS) - faultAt;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 故障期间持续进行的读写和加锁
+     */
+    private static final class Load {
+        private final CuratorClientV510 client;
+        private final InterProcessMutex lock;
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong failedAfterFault = new AtomicLong();
+        private final AtomicLong lockAcquiredAt = new AtomicLong();
+        private final List<Thread> threads = new ArrayList<>();
+        private volatile long faultAt = Long.MAX_VALUE;
+        private volatile boolean running = true;
+
+        Load(CuratorClientV510 client) {
+            this.client = client;
+            this.lock = client.getMutexLock(LOCK);
+        }
+
+        void start() {
+            threads.add(new Thread(() -> {
+                long i = 0;
+                while (running) {
+                    try {
+                        if (i++ % 4==0) {
+                            client.setNodeData(DATA, Long.toString(i));
+                        } else {
+                            client.getNodeData(DATA);
+                        }
+                    } catch (CuratorClientException e) {
+                        if (System.currentTimeMillis()>=faultAt) {
+                            failedAfterFault.incrementAndGet();
+                        }
+                    }
+                    total.incrementAndGet();
+                }
+            }, "fault-load"));
+            threads.add(new Thread(() -> {
+                while (running) {
+                    try {
+                        client.acquire(lock, 1, TimeUnit.SECONDS);
+                        if (client.isAcquiredInThisProcess(lock)) {
+                            lockAcquiredAt.set(System.currentTimeMillis());
+                            TimeUnit.MILLISECONDS.sleep(20);
+                            client.release(lock);
+                        }
+                    } catch (CuratorClientException e) {
+                        // 会话过期后释放锁会失败，锁节点已随会话删除
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "fault-lock"));
+            threads.forEach(thread -> {
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            for (Thread thread : threads) {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            }
+        }
+    }
+
+    @Data
+    public static class Result {
+        private String scenario;
+        private long reconnectMs;
+        private long cacheConsistentMs;
+        private long lockReacquireMs;
+        private long failedOps;
+        private long totalOps;
+    }
+
+}
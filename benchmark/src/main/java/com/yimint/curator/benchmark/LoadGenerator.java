@@ -0,0 +1,302 @@
+package com.yimint.curator.benchmark;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.zookeeper.CreateMode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压力测试工具，用于在流量高峰前评估zookeeper集群的容量
+ * 按配置的操作比例、key分布、数据大小、并发数和目标速率驱动CuratorClientV510，用HdrHistogram记录延迟分位数。
+ * 设置了目标速率时，延迟从计划发出时间开始计算（修正coordinated omission），服务端变慢导致的排队时间也计入延迟；
+ * 同时输出从实际发出时间开始计算的服务时间作为对比。
+ *
+ * java -cp benchmark/target/benchmarks.jar com.yimint.curator.benchmark.LoadGenerator \
+ *     --connect=zk1:2181,zk2:2181 --mix=get:80,set:15,create:3,delete:2 --keys=100000 --distribution=zipfian \
+ *     --payload=128-4096 --threads=32 --rate=20000 --duration=60
+ * 未指定--connect时在进程内启动TestingServer。
+ */
+public class LoadGenerator {
+
+    private static final String ROOT = "/load";
+    private static final int POPULATE_BATCH = 200;
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    enum Op {GET, SET, CREATE, DELETE, CHILDREN}
+
+    private final Map<String, String> options;
+    private final CuratorClientV510 client;
+    private final Op[] mix;
+    private final int keys;
+    private final ZipfianGenerator zipfian;
+    private final int minPayload;
+    private final int maxPayload;
+    private final int threads;
+    private final double rate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final Recorder corrected = new Recorder(MAX_LATENCY_NANOS, 3);
+    private final Recorder service = new Recorder(MAX_LATENCY_NANOS, 3);
+    private final Map<Op, LongAdder> counts = new HashMap<>();
+    private final Map<Op, LongAdder> errors = new HashMap<>();
+    private final Queue<String> created = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean running = true;
+
+    public LoadGenerator(Map<String, String> options, CuratorClientV510 client) {
+        this.options = options;
+        this.client = client;
+        this.mix = parseMix(option("mix", "get:80,set:15,create:3,delete:2"));
+        this.keys = Integer.parseInt(option("keys", "10000"));
+        this.zipfian = "zipfian".equals(option("distribution", "uniform"))
+                ? new ZipfianGenerator(keys, Double.parseDouble(option("theta", "0.99"))) : null;
+        String[] payload = option("payload", "128").split("-");
+        this.minPayload = Integer.parseInt(payload[0]);
+        this.maxPayload = Integer.parseInt(payload[payload.length - 1]);
+        this.threads = Integer.parseInt(option("threads", "16"));
+        this.rate = Double.parseDouble(option("rate", "0"));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("duration", "60")));
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("warmup", "10")));
+        for (Op op : Op.values()) {
+            counts.put(op, new LongAdder());
+            errors.put(op, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式为--name=value：" + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        EmbeddedEnsemble ensemble = null;
+        CuratorClientV510 client;
+        if (options.containsKey("connect")) {
+            client = new CuratorClientV510(CuratorFrameworkFactory.builder()
+                    .connectString(options.get("connect"))
+                    .retryPolicy(new ExponentialBackoffRetry(100, 3)), "utf8");
+            client.init();
+            client.getClient().blockUntilConnected(30, TimeUnit.SECONDS);
+        } else {
+            ensemble = new EmbeddedEnsemble(Integer.parseInt(options.getOrDefault("servers", "1")));
+            client = ensemble.newClient();
+        }
+        try {
+            new LoadGenerator(options, client).run();
+        } finally {
+            client.stop();
+            if (ensemble!=null) {
+                ensemble.close();
+            }
+        }
+    }
+
+    public void run() throws Exception {
+        System.out.println("options: " + options);
+        populate();
+        CountDownLatch finished = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i<threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    work(start);
+                } finally {
+                    finished.countDown();
+                }
+            }, "load-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        long reportInterval = TimeUnit.SECONDS.toNanos(Long.parseLong(option("report", "5")));
+        Histogram correctedTotal = new Histogram(MAX_LATENCY_NANOS, 3);
+        Histogram serviceTotal = new Histogram(MAX_LATENCY_NANOS, 3);
+        Histogram correctedInterval = null;
+        Histogram serviceInterval = null;
+        long measuredNanos = 0;
+        long intervalStart = start;
+        long end = start + warmupNanos + durationNanos;
+        while (intervalStart<end) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(reportInterval, end - intervalStart));
+            long now = System.nanoTime();
+            correctedInterval = corrected.getIntervalHistogram(correctedInterval);
+            serviceInterval = service.getIntervalHistogram(serviceInterval);
+            // 预热期间的区间只打印不计入汇总
+            boolean measured = intervalStart - start>=warmupNanos;
+            if (measured) {
+                correctedTotal.add(correctedInterval);
+                serviceTotal.add(serviceInterval);
+                measuredNanos += now - intervalStart;
+            } else if (now - start>=warmupNanos) {
+                counts.values().forEach(LongAdder::reset);
+                errors.values().forEach(LongAdder::reset);
+            }
+            System.out.printf("%6.1fs %s ops/s=%.0f p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                    (now - start) / 1e9, measured ? "      " : "[warm]",
+                    correctedInterval.getTotalCount() / ((now - intervalStart) / 1e9),
+                    millis(correctedInterval.getValueAtPercentile(50)), millis(correctedInterval.getValueAtPercentile(99)),
+                    millis(correctedInterval.getValueAtPercentile(99.9)), millis(correctedInterval.getMaxValue()));
+            intervalStart = now;
+        }
+        running = false;
+        finished.await(30, TimeUnit.SECONDS);
+        report(correctedTotal, serviceTotal, measuredNanos);
+    }
+
+    private void work(long start) {
+        // 每个线程按相同的间隔排期，落后于计划时不等待，直接补发
+        long interval = rate>0 ? (long) (threads * 1e9 / rate) : 0;
+        long intended = start + ThreadLocalRandom.current().nextLong(Math.max(1, interval));
+        while (running) {
+            if (interval>0) {
+                long wait = intended - System.nanoTime();
+                if (wait>0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            long begin = System.nanoTime();
+            if (interval==0) {
+                intended = begin;
+            }
+            Op op = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+            try {
+                execute(op);
+                counts.get(op).increment();
+            } catch (RuntimeException e) {
+                // 除CuratorClientException外，读到非预期数据等异常也只计为错误，工作线程继续运行
+                errors.get(op).increment();
+            }
+            long now = System.nanoTime();
+            corrected.recordValue(Math.min(MAX_LATENCY_NANOS, now - intended));
+            service.recordValue(Math.min(MAX_LATENCY_NANOS, now - begin));
+            intended += interval;
+        }
+    }
+
+    private void execute(Op op) {
+        switch (op) {
+            case GET:
+                client.getNodeData(keyPath(nextKey()));
+                break;
+            case SET:
+                client.setNodeData(keyPath(nextKey()), payload());
+                break;
+            case CREATE:
+                String path = ROOT + "/new/" + sequence.getAndIncrement();
+                client.createNode(CreateMode.PERSISTENT, path, payload());
+                created.add(path);
+                break;
+            case DELETE:
+                String victim = created.poll();
+                if (victim==null) {
+                    // 还没有可删除的节点时改为创建，保持操作比例
+                    execute(Op.CREATE);
+                } else {
+                    client.deleteNode(victim, false);
+                }
+                break;
+            case CHILDREN:
+                client.getChildren(ROOT + "/keys");
+                break;
+            default:
+                throw new IllegalStateException(op.name());
+        }
+    }
+
+    private void populate() throws Exception {
+        long start = System.nanoTime();
+        client.createNodeIfAbsent(CreateMode.PERSISTENT, ROOT + "/new", "");
+        client.createNodeIfAbsent(CreateMode.PERSISTENT, ROOT + "/keys", "");
+        List<CuratorOp> ops = new ArrayList<>(POPULATE_BATCH);
+        int existing = client.getClient().checkExists().forPath(ROOT + "/keys").getNumChildren();
+        for (int i = existing; i<keys; i++) {
+            ops.add(client.getClient().transactionOp().create().forPath(keyPath(i), payload().getBytes(client.getNodeCharset())));
+            if (ops.size()==POPULATE_BATCH || i==keys - 1) {
+                client.getClient().transaction().forOperations(ops);
+                ops.clear();
+            }
+        }
+        System.out.printf("populated %d keys in %.1fs%n", keys - existing, (System.nanoTime() - start) / 1e9);
+    }
+
+    private void report(Histogram correctedTotal, Histogram serviceTotal, long measuredNanos) {
+        double seconds = Math.max(1, measuredNanos) / 1e9;
+        System.out.println();
+        System.out.printf("target rate: %s, achieved: %.0f ops/s%n", rate>0 ? String.format("%.0f ops/s", rate) : "unbounded",
+                correctedTotal.getTotalCount() / seconds);
+        for (Op op : Op.values()) {
+            long count = counts.get(op).sum();
+            long failed = errors.get(op).sum();
+            if (count + failed>0) {
+                System.out.printf("  %-8s ok=%d errors=%d%n", op.name().toLowerCase(), count, failed);
+            }
+        }
+        System.out.printf("%-10s %10s %10s%n", "percentile", "corrected", "service");
+        for (double percentile : new double[]{50, 90, 99, 99.9, 99.99, 100}) {
+            System.out.printf("%-10s %8.2fms %8.2fms%n", percentile,
+                    millis(correctedTotal.getValueAtPercentile(percentile)), millis(serviceTotal.getValueAtPercentile(percentile)));
+        }
+    }
+
+    private long nextKey() {
+        return zipfian!=null ? zipfian.next() : ThreadLocalRandom.current().nextInt(keys);
+    }
+
+    private String payload() {
+        int size = minPayload==maxPayload ? minPayload : ThreadLocalRandom.current().nextInt(minPayload, maxPayload + 1);
+        char[] chars = new char[size];
+        for (int i = 0; i<size; i++) {
+            chars[i] = (char) ('a' + ThreadLocalRandom.current().nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private static String keyPath(long key) {
+        return ROOT + "/keys/" + key;
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    /**
+     * 把 get:80,set:20 形式的比例展开为100个槽位，按随机槽位选择操作
+     */
+    private static Op[] parseMix(String mix) {
+        List<Op> slots = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            Op op = Op.valueOf(pair[0].trim().toUpperCase());
+            for (int i = 0; i<Integer.parseInt(pair[1].trim()); i++) {
+                slots.add(op);
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("操作比例不能为空：" + mix);
+        }
+        return slots.toArray(new Op[0]);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.yimint.curator.benchmark;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一把锁在1~N个线程竞争下的获取/释放吞吐量与延迟分位数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class LockBenchmark {
+
+    private static final String LOCK_PATH = "/benchmark/lock";
+
+    @Param({"1", "3"})
+    public int servers;
+
+    private EmbeddedEnsemble ensemble;
+    private CuratorClientV510 client;
+    private InterProcessMutex lock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ensemble = new EmbeddedEnsemble(servers);
+        client = ensemble.newClient();
+        lock = client.getMutexLock(LOCK_PATH);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.stop();
+        ensemble.close();
+    }
+
+    private void acquireRelease() {
+        client.acquire(lock);
+        client.release(lock);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void acquireRelease1Thread() {
+        acquireRelease();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void acquireRelease4Threads() {
+        acquireRelease();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void acquireRelease16Threads() {
+        acquireRelease();
+    }
+
+}
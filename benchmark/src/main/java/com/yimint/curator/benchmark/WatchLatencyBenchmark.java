@@ -0,0 +1,85 @@
+package com.yimint.curator.benchmark;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.zookeeper.CreateMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从另一个会话写入到watch()的监听器收到事件的端到端延迟
+ * 结果包含一次写入的延迟，减去CrudBenchmark.setNodeData即为事件投递延迟
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class WatchLatencyBenchmark {
+
+    private static final String PATH = "/benchmark/watch";
+
+    @Param({"1", "3"})
+    public int servers;
+
+    private EmbeddedEnsemble ensemble;
+    private CuratorClientV510 writer;
+    private CuratorClientV510 watcher;
+    private CuratorCache cache;
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ensemble = new EmbeddedEnsemble(servers);
+        writer = ensemble.newClient();
+        watcher = ensemble.newClient();
+        writer.createNode(CreateMode.PERSISTENT, PATH, "");
+        CountDownLatch initialized = new CountDownLatch(1);
+        cache = watcher.watch(PATH, CuratorCacheListener.builder()
+                .forChanges((oldNode, node) -> events.add(new String(node.getData(), StandardCharsets.UTF_8)))
+                .forInitialized(initialized::countDown)
+                .build());
+        // 初始化完成前的写入只会表现为NODE_CREATED
+        initialized.await(30, TimeUnit.SECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        cache.close();
+        watcher.stop();
+        writer.stop();
+        ensemble.close();
+    }
+
+    @Benchmark
+    public String writeToEvent() throws InterruptedException {
+        String value = Long.toString(++sequence);
+        writer.setNodeData(PATH, value);
+        String received;
+        do {
+            received = events.poll(10, TimeUnit.SECONDS);
+        } while (received!=null && !received.equals(value));
+        return received;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.yimint.curator.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Zipf分布的key序号，0最热
+ * 算法来自Gray等人的"Quickly Generating Billion-Record Synthetic Databases"，与YCSB相同，构造时需要O(n)计算zeta
+ */
+public class ZipfianGenerator {
+
+    private final long items;
+    private final double theta;
+    private final double alpha;
+    private final double zetan;
+    private final double eta;
+
+    /**
+     * @param items key数量
+     * @param theta 倾斜程度，0~1之间，越大越集中，YCSB默认0.99
+     */
+    public ZipfianGenerator(long items, double theta) {
+        this.items = items;
+        this.theta = theta;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetan = zeta(items, theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+    }
+
+    public long next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetan;
+        if (uz<1.0) {
+            return 0;
+        }
+        if (uz<1.0 + Math.pow(0.5, theta)) {
+            return 1;
+        }
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i<=n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+}
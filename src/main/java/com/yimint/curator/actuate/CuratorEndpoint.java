@@ -0,0 +1,39 @@
+package com.yimint.curator.actuate;
+
+import com.yimint.curator.client.ClientInventory;
+import com.yimint.curator.client.CuratorClientV510;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * curator端点：watch()启动的缓存（节点数、内存估算、监听器的事件速率和排队延迟）以及持有或等待中的锁
+ * 需要暴露时配置management.endpoints.web.exposure.include=health,curator
+ */
+@Endpoint(id = "curator")
+public class CuratorEndpoint {
+
+    private final CuratorClientV510 curatorClient;
+
+    public CuratorEndpoint(CuratorClientV510 curatorClient) {
+        this.curatorClient = curatorClient;
+    }
+
+    @ReadOperation
+    public Map<String, Object> inventory() {
+        ClientInventory inventory = curatorClient.getInventory();
+        List<Map<String, Object>> caches = inventory.cacheReport();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("connectionState", String.valueOf(curatorClient.getConnectionState()));
+        result.put("cacheCount", caches.size());
+        result.put("cachedNodes", caches.stream().mapToLong(cache -> (Long) cache.get("nodes")).sum());
+        result.put("estimatedBytes", caches.stream().mapToLong(cache -> (Long) cache.get("estimatedBytes")).sum());
+        result.put("caches", caches);
+        result.put("locks", inventory.lockReport());
+        return result;
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.yimint.curator.actuate;
+
+import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.client.CuratorWarmUp;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * zookeeper健康检查
+ * 未连接时为DOWN，已连接但预热未完成时为OUT_OF_SERVICE，预热完成后为UP。
+ * 可以加入readiness分组：management.endpoint.health.group.readiness.include=readinessState,curator
+ */
+public class CuratorHealthIndicator extends AbstractHealthIndicator {
+
+    private final CuratorClientV510 curatorClient;
+    private final CuratorWarmUp warmUp;
+
+    public CuratorHealthIndicator(CuratorClientV510 curatorClient, CuratorWarmUp warmUp) {
+        this.curatorClient = curatorClient;
+        this.warmUp = warmUp;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        boolean connected = curatorClient.getClient().getZookeeperClient().isConnected();
+        builder.withDetail("connectionState", String.valueOf(curatorClient.getConnectionState()));
+        if (!connected) {
+            builder.down();
+            return;
+        }
+        if (warmUp!=null && !warmUp.isReady()) {
+            builder.outOfService().withDetail("warmUp", warmUp.getLastError()!=null ? "failed, retrying" : "in progress");
+            return;
+        }
+        builder.up().withDetail("warmUp", "finished");
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.yimint.curator.actuate;
+
+import com.yimint.curator.client.CuratorWarmUp;
+import org.springframework.boot.actuate.availability.ReadinessStateHealthIndicator;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityState;
+import org.springframework.boot.availability.ReadinessState;
+
+/**
+ * 加入预热结果的readiness状态健康检查
+ * 以readinessStateHealthIndicator的名称注册，替换Spring Boot默认的实现：预热完成前报告REFUSING_TRAFFIC（OUT_OF_SERVICE），
+ * 完成后与应用的readiness状态一致，readiness探针因此在缓存就绪后才返回UP。
+ * 不发布AvailabilityChangeEvent，不与ApplicationAvailabilityBean记录的状态产生先后顺序问题。
+ */
+public class CuratorReadinessStateHealthIndicator extends ReadinessStateHealthIndicator {
+
+    private final CuratorWarmUp warmUp;
+
+    public CuratorReadinessStateHealthIndicator(ApplicationAvailability availability, CuratorWarmUp warmUp) {
+        super(availability);
+        this.warmUp = warmUp;
+    }
+
+    @Override
+    protected AvailabilityState getState(ApplicationAvailability applicationAvailability) {
+        if (!warmUp.isReady()) {
+            return ReadinessState.REFUSING_TRAFFIC;
+        }
+        return super.getState(applicationAvailability);
+    }
+
+}
@@ -1,7 +1,33 @@
 package com.yimint.curator.autoconfigure;
 
+import com.yimint.curator.actuate.CuratorEndpoint;
+import com.yimint.curator.actuate.CuratorHealthIndicator;
+import com.yimint.curator.actuate.CuratorReadinessStateHealthIndicator;
+import com.yimint.curator.client.ChunkedBlobStore;
 import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.client.CuratorWarmUp;
+import com.yimint.curator.client.EmbeddedZooKeeperServer;
+import com.yimint.curator.client.ExistenceIndex;
+import com.yimint.curator.client.ReadHedger;
+import com.yimint.curator.client.SuspendedWriteBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yimint.curator.codec.BytesNodeCodec;
+import com.yimint.curator.codec.DecodedNodeCache;
+import com.yimint.curator.codec.JsonNodeCodec;
+import com.yimint.curator.codec.NodeCodec;
+import com.yimint.curator.codec.NodeCodecRegistry;
+import com.yimint.curator.codec.ProtobufNodeCodec;
+import com.yimint.curator.codec.StringNodeCodec;
+import com.yimint.curator.compress.AdaptiveCompressionProvider;
+import com.yimint.curator.compress.CompressionMetrics;
 import com.yimint.curator.exception.CuratorClientException;
+import com.yimint.curator.retry.BudgetedRetryPolicy;
+import com.yimint.curator.retry.CircuitBreaker;
+import com.yimint.curator.retry.DeadlineRetryPolicy;
+import com.yimint.curator.retry.DecorrelatedJitterRetry;
+import com.yimint.curator.retry.RetryBudget;
+import com.yimint.curator.retry.RetryMetrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.ensemble.EnsembleProvider;
@@ -15,37 +41,91 @@ import org.apache.curator.utils.DefaultZookeeperFactory;
 import org.apache.curator.utils.ZookeeperFactory;
 import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.data.ACL;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.availability.ApplicationAvailability;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
 
 @Configuration
 @ConditionalOnClass(CuratorClientV510.class)
 @EnableConfigurationProperties(CuratorClientProperties.class)
 public class CuratorClientAutoConfiguration {
 
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "curator-client", name = "backend", havingValue = "embedded")
+    public EmbeddedZooKeeperServer embeddedZooKeeperServer(CuratorClientProperties curatorClientProperties) {
+        CuratorClientProperties.Embedded embedded = curatorClientProperties.getEmbedded();
+        return new EmbeddedZooKeeperServer(embedded.getPort(), embedded.getTickTimeMs(), embedded.getMaxClientCnxns());
+    }
+
     @Bean
     @ConditionalOnMissingBean
-    public EnsembleProvider ensembleProvider(CuratorClientProperties curatorClientProperties) {
+    public EnsembleProvider ensembleProvider(CuratorClientProperties curatorClientProperties,
+                                             ObjectProvider<EmbeddedZooKeeperServer> embeddedZooKeeperServer) {
+        EmbeddedZooKeeperServer embedded = embeddedZooKeeperServer.getIfAvailable();
+        if (embedded!=null) {
+            return new FixedEnsembleProvider(embedded.getConnectString());
+        }
         return new FixedEnsembleProvider(curatorClientProperties.getConnectionString());
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public RetryPolicy retryPolicy(CuratorClientProperties curatorClientProperties) {
+    @ConditionalOnProperty(prefix = "curator-client.retry.budget", name = "enabled", havingValue = "true")
+    public RetryBudget retryBudget(CuratorClientProperties curatorClientProperties) {
+        CuratorClientProperties.Retry.Budget budget = curatorClientProperties.getRetry().getBudget();
+        return new RetryBudget(budget.getRatio(), budget.getMinRetriesPerSecond(), budget.getWindowMs());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "curator-client.circuit-breaker", name = "enabled", havingValue = "true")
+    public CircuitBreaker circuitBreaker(CuratorClientProperties curatorClientProperties) {
+        CuratorClientProperties.CircuitBreaker circuitBreaker = curatorClientProperties.getCircuitBreaker();
+        return new CircuitBreaker(circuitBreaker.getFailureRateThreshold(), circuitBreaker.getMinimumRequests(),
+                circuitBreaker.getWindowMs(), circuitBreaker.getOpenDurationMs());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RetryPolicy retryPolicy(CuratorClientProperties curatorClientProperties, ObjectProvider<RetryBudget> retryBudget) {
         CuratorClientProperties.Retry retry = curatorClientProperties.getRetry();
-        return new BoundedExponentialBackoffRetry(retry.getBaseSleepTimeMs(), retry.getMaxSleepTimeMs(), retry.getMaxRetries());
+        RetryPolicy retryPolicy;
+        if (retry.getStrategy()==CuratorClientProperties.Strategy.DECORRELATED_JITTER) {
+            retryPolicy = new DecorrelatedJitterRetry(retry.getBaseSleepTimeMs(), retry.getMaxSleepTimeMs(), retry.getMaxRetries());
+        } else {
+            retryPolicy = new BoundedExponentialBackoffRetry(retry.getBaseSleepTimeMs(), retry.getMaxSleepTimeMs(), retry.getMaxRetries());
+        }
+        retryPolicy = new DeadlineRetryPolicy(retryPolicy);
+        RetryBudget budget = retryBudget.getIfAvailable();
+        if (budget!=null) {
+            // 截止时间拒绝的重试不消耗预算
+            retryPolicy = new BudgetedRetryPolicy(retryPolicy, budget);
+        }
+        return retryPolicy;
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public CompressionProvider compressionProvider() {
+    public CompressionProvider compressionProvider(CuratorClientProperties curatorClientProperties) {
+        CuratorClientProperties.Compression compression = curatorClientProperties.getCompression();
+        if (compression.isEnabled()) {
+            return new AdaptiveCompressionProvider(compression.getThresholdBytes(), compression.getLevel(),
+                    compression.getIncludePaths(), compression.getExcludePaths(), compression.getPoolSize());
+        }
         return new GzipCompressionProvider();
     }
 
@@ -111,10 +191,112 @@ public class CuratorClientAutoConfiguration {
         return builder;
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public NodeCodecRegistry nodeCodecRegistry(CuratorClientProperties curatorClientProperties,
+                                               ObjectProvider<NodeCodec> nodeCodecs,
+                                               ObjectProvider<ObjectMapper> objectMapper) {
+        List<NodeCodec> codecs = nodeCodecs.orderedStream().collect(Collectors.toCollection(ArrayList::new));
+        codecs.add(new BytesNodeCodec());
+        codecs.add(new StringNodeCodec(Charset.forName(curatorClientProperties.getCharset())));
+        codecs.add(new ProtobufNodeCodec());
+        codecs.add(new JsonNodeCodec(objectMapper.getIfAvailable(ObjectMapper::new)));
+        return new NodeCodecRegistry(codecs);
+    }
+
     @Bean(initMethod = "init", destroyMethod = "stop")
     @ConditionalOnMissingBean
-    public CuratorClientV510 curatorClient(CuratorFrameworkFactory.Builder builder) {
-        return new CuratorClientV510(builder);
+    public CuratorClientV510 curatorClient(CuratorFrameworkFactory.Builder builder,
+                                           CuratorClientProperties curatorClientProperties,
+                                           ObjectProvider<RetryBudget> retryBudget,
+                                           ObjectProvider<CircuitBreaker> circuitBreaker,
+                                           NodeCodecRegistry nodeCodecRegistry,
+                                           CompressionProvider compressionProvider) {
+        CuratorClientV510 curatorClient = new CuratorClientV510(builder, curatorClientProperties.getCharset());
+        curatorClient.setCodecRegistry(nodeCodecRegistry);
+        if (compressionProvider instanceof AdaptiveCompressionProvider) {
+            // 只有带头部的自适应压缩才能与未压缩的节点共存，自动应用到读写操作
+            curatorClient.setCompressionProvider((AdaptiveCompressionProvider) compressionProvider);
+        }
+        CuratorClientProperties.Blob blob = curatorClientProperties.getBlob();
+        curatorClient.setBlobStore(new ChunkedBlobStore(curatorClient.getClient(), blob.getChunkSize(), blob.getCacheSize()));
+        int decodeCacheSize = curatorClientProperties.getCodec().getDecodeCacheSize();
+        if (decodeCacheSize>0) {
+            curatorClient.setDecodedNodeCache(new DecodedNodeCache(decodeCacheSize));
+        }
+        List<String> existencePrefixes = curatorClientProperties.getExistenceIndex().getPrefixes();
+        if (!existencePrefixes.isEmpty()) {
+            curatorClient.setExistenceIndex(new ExistenceIndex(curatorClient.getClient(), existencePrefixes));
+        }
+        curatorClient.setRetryBudget(retryBudget.getIfAvailable());
+        curatorClient.setCircuitBreaker(circuitBreaker.getIfAvailable());
+        CuratorClientProperties.Hedge hedge = curatorClientProperties.getHedge();
+        if (hedge.isEnabled()) {
+            // 对冲读使用同一配置建立的第二个会话，对冲请求先sync()，保证读到主会话已完成的写入
+            curatorClient.setReadHedger(new ReadHedger(curatorClient.getClient(), builder.build(),
+                    hedge.getPercentile(), hedge.getMinDelayMs()));
+        }
+        CuratorClientProperties.WriteBuffer writeBuffer = curatorClientProperties.getWriteBuffer();
+        if (writeBuffer.isEnabled()) {
+            curatorClient.setWriteBuffer(new SuspendedWriteBuffer(curatorClient.getClient(), writeBuffer.getCapacity(),
+                    writeBuffer.getBatchSize(), writeBuffer.getBatchIntervalMs(), writeBuffer.getLostPolicy()));
+        }
+        return curatorClient;
+    }
+
+    @Bean(initMethod = "start")
+    @ConditionalOnMissingBean
+    public CuratorWarmUp curatorWarmUp(CuratorClientV510 curatorClient, CuratorClientProperties curatorClientProperties) {
+        CuratorClientProperties.WarmUp warmUp = curatorClientProperties.getWarmUp();
+        return new CuratorWarmUp(curatorClient, warmUp.getCachePaths(), warmUp.getTimeoutMs());
+    }
+
+    @Configuration
+    @ConditionalOnClass(HealthIndicator.class)
+    static class CuratorHealthConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(name = "curatorHealthIndicator")
+        public CuratorHealthIndicator curatorHealthIndicator(CuratorClientV510 curatorClient, CuratorWarmUp curatorWarmUp) {
+            return new CuratorHealthIndicator(curatorClient, curatorWarmUp);
+        }
+
+        /**
+         * 替换Spring Boot默认的readinessState健康检查，预热完成前readiness为OUT_OF_SERVICE
+         */
+        @Bean
+        @ConditionalOnMissingBean(name = "readinessStateHealthIndicator")
+        public CuratorReadinessStateHealthIndicator readinessStateHealthIndicator(ApplicationAvailability applicationAvailability,
+                                                                                  CuratorWarmUp curatorWarmUp) {
+            return new CuratorReadinessStateHealthIndicator(applicationAvailability, curatorWarmUp);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnAvailableEndpoint
+        public CuratorEndpoint curatorEndpoint(CuratorClientV510 curatorClient) {
+            return new CuratorEndpoint(curatorClient);
+        }
+
+    }
+
+    @Configuration
+    @ConditionalOnClass(MeterBinder.class)
+    static class CuratorMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public RetryMetrics retryMetrics(ObjectProvider<RetryBudget> retryBudget, ObjectProvider<CircuitBreaker> circuitBreaker) {
+            return new RetryMetrics(retryBudget.getIfAvailable(), circuitBreaker.getIfAvailable());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "curator-client.compression", name = "enabled", havingValue = "true")
+        public CompressionMetrics compressionMetrics(CompressionProvider compressionProvider) {
+            return new CompressionMetrics(compressionProvider);
+        }
+
     }
 
 }
@@ -1,13 +1,19 @@
 package com.yimint.curator.autoconfigure;
 
+import com.yimint.curator.client.SuspendedWriteBuffer;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @ConfigurationProperties(prefix = "curator-client")
 public class CuratorClientProperties {
 
     private String connectionString;
+    private Backend backend = Backend.ZOOKEEPER;
+    private Embedded embedded = new Embedded();
     private String namespace;
     private String charset = "utf8";
     private int sessionTimeoutMs = 60000;
@@ -19,12 +25,62 @@ public class CuratorClientProperties {
     private String threadFactoryClassName;
     private Retry retry = new Retry();
     private Auth auth = new Auth();
+    private WriteBuffer writeBuffer = new WriteBuffer();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Hedge hedge = new Hedge();
+    private WarmUp warmUp = new WarmUp();
+    private Codec codec = new Codec();
+    private Compression compression = new Compression();
+    private Blob blob = new Blob();
+    private ExistenceIndex existenceIndex = new ExistenceIndex();
 
     @Data
     public class Retry {
         private int maxSleepTimeMs = 10000;
         private int baseSleepTimeMs = 1000;
         private int maxRetries = 3;
+        private Strategy strategy = Strategy.BOUNDED_EXPONENTIAL;
+        private Budget budget = new Budget();
+
+        @Data
+        public class Budget {
+            private boolean enabled = false;
+            private double ratio = 0.1;
+            private int minRetriesPerSecond = 10;
+            private long windowMs = 10000;
+        }
+    }
+
+    public enum Strategy {
+        /**
+         * 有上限的指数退避，即BoundedExponentialBackoffRetry
+         */
+        BOUNDED_EXPONENTIAL,
+        /**
+         * 去相关抖动退避，即DecorrelatedJitterRetry
+         */
+        DECORRELATED_JITTER
+    }
+
+    public enum Backend {
+        /**
+         * 连接connection-string指定的zookeeper
+         */
+        ZOOKEEPER,
+        /**
+         * 在进程内启动单机zookeeper，忽略connection-string，用于测试和本地开发
+         */
+        EMBEDDED
+    }
+
+    @Data
+    public class Embedded {
+        /**
+         * 监听端口，0表示随机端口
+         */
+        private int port = 0;
+        private int tickTimeMs = 2000;
+        private int maxClientCnxns = 0;
     }
 
     @Data
@@ -33,4 +89,67 @@ public class CuratorClientProperties {
         private String auth;
     }
 
+    @Data
+    public class WriteBuffer {
+        private boolean enabled = false;
+        private int capacity = 1000;
+        private int batchSize = 50;
+        private long batchIntervalMs = 100;
+        private SuspendedWriteBuffer.LostPolicy lostPolicy = SuspendedWriteBuffer.LostPolicy.FAIL;
+    }
+
+    @Data
+    public class CircuitBreaker {
+        private boolean enabled = false;
+        private double failureRateThreshold = 0.5;
+        private int minimumRequests = 20;
+        private long windowMs = 10000;
+        private long openDurationMs = 5000;
+    }
+
+    @Data
+    public class Hedge {
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private long minDelayMs = 5;
+    }
+
+    @Data
+    public class WarmUp {
+        private List<String> cachePaths = new ArrayList<>();
+        private long timeoutMs = 30000;
+    }
+
+    @Data
+    public class Codec {
+        /**
+         * 解码结果缓存的最大节点数，0表示不缓存
+         */
+        private int decodeCacheSize = 0;
+    }
+
+    @Data
+    public class Compression {
+        private boolean enabled = false;
+        private int thresholdBytes = 4096;
+        private int level = 6;
+        private List<String> includePaths = new ArrayList<>();
+        private List<String> excludePaths = new ArrayList<>();
+        private int poolSize = 8;
+    }
+
+    @Data
+    public class Blob {
+        private int chunkSize = 512 * 1024;
+        private int cacheSize = 16;
+    }
+
+    @Data
+    public class ExistenceIndex {
+        /**
+         * 建立存在性索引的路径前缀，为空时不启用
+         */
+        private List<String> prefixes = new ArrayList<>();
+    }
+
 }
@@ -0,0 +1,75 @@
+package com.yimint.curator.client;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.zookeeper.KeeperException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 以后台方式读取节点，结果在zookeeper事件线程中完成，不占用调用线程
+ * 对冲读、并行批量读和分块读共用
+ */
+public final class BackgroundReads {
+
+    private BackgroundReads() {
+    }
+
+    /**
+     * 读取节点数据
+     *
+     * @param framework 会话
+     * @param path      节点名称
+     * @return 节点数据，失败时以对应的KeeperException完成
+     */
+    public static CompletableFuture<byte[]> getData(CuratorFramework framework, String path) {
+        return getChildData(framework, path).thenApply(ChildData::getData);
+    }
+
+    /**
+     * 让会话所连接的服务端与leader同步，之后的读请求能够看到sync()之前已经提交的写入
+     *
+     * @param framework 会话
+     * @param path      节点名称
+     * @return 同步结果，失败时以对应的KeeperException完成
+     */
+    public static CompletableFuture<Void> sync(CuratorFramework framework, String path) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            framework.sync().inBackground((client, event) -> {
+                if (event.getResultCode()==KeeperException.Code.OK.intValue()) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(KeeperException.create(KeeperException.Code.get(event.getResultCode()), event.getPath()));
+                }
+            }).forPath(path);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 读取节点数据和状态
+     *
+     * @param framework 会话
+     * @param path      节点名称
+     * @return 节点数据和状态，失败时以对应的KeeperException完成
+     */
+    public static CompletableFuture<ChildData> getChildData(CuratorFramework framework, String path) {
+        CompletableFuture<ChildData> future = new CompletableFuture<>();
+        try {
+            framework.getData().inBackground((client, event) -> {
+                if (event.getResultCode()==KeeperException.Code.OK.intValue()) {
+                    future.complete(new ChildData(path, event.getStat(), event.getData()));
+                } else {
+                    future.completeExceptionally(KeeperException.create(KeeperException.Code.get(event.getResultCode()), event.getPath()));
+                }
+            }).forPath(path);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+}
@@ -0,0 +1,284 @@
+package com.yimint.curator.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 分块存储大数据
+ * zookeeper单个节点的数据受jute.maxbuffer（默认约1MB）限制，超过限制的数据拆分为多个子节点保存：
+ * 主节点保存清单（版本、长度、分块大小、分块数、sha256），分块保存在子节点 c-{generation}-{index} 中。
+ * 写入时先创建新一代分块，再用一个multi-op以版本号校验的方式更新清单并删除上一代分块，清单切换是原子的；
+ * 写入失败时删除已创建的新一代分块，事务结果不确定（响应丢失）时先确认清单没有指向新一代分块再删除；
+ * 读取时并行获取所有分块组装到同一个数组中，清单的sha256与本地副本一致时直接返回本地副本。
+ */
+@Slf4j
+public class ChunkedBlobStore {
+
+    private static final String CHUNK_PREFIX = "c-";
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final CuratorFramework client;
+    private final int chunkSize;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LocalCopy> localCopies;
+
+    /**
+     * @param client    会话
+     * @param chunkSize 分块大小，需要小于jute.maxbuffer
+     * @param cacheSize 本地副本的最大数量
+     */
+    public ChunkedBlobStore(CuratorFramework client, int chunkSize, int cacheSize) {
+        this.client = client;
+        this.chunkSize = chunkSize;
+        this.localCopies = new LinkedHashMap<String, LocalCopy>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalCopy> eldest) {
+                return size()>cacheSize;
+            }
+        };
+    }
+
+    /**
+     * 写入数据
+     *
+     * @param path 节点名称
+     * @param value 数据
+     */
+    public void put(String path, byte[] value) throws Exception {
+        Stat stat = new Stat();
+        Manifest current = readManifest(path, stat);
+        if (current==null) {
+            try {
+                client.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT)
+                        .forPath(path, objectMapper.writeValueAsBytes(new Manifest()));
+            } catch (KeeperException.NodeExistsException e) {
+                // 其他客户端已创建
+            }
+            current = readManifest(path, stat);
+            if (current==null) {
+                throw new CuratorClientException("清单节点在创建后被删除：" + path);
+            }
+        }
+        Manifest next = new Manifest();
+        next.setVersion(current.getVersion() + 1);
+        next.setGeneration(next.getVersion() + "-" + UUID.randomUUID().toString().substring(0, 8));
+        next.setSize(value.length);
+        next.setChunkSize(chunkSize);
+        next.setChunks((value.length + chunkSize - 1) / chunkSize);
+        next.setSha256(sha256(value));
+
+        // TRUE 清单已指向新一代分块，FALSE 未提交，null 无法确认
+        Boolean committed = Boolean.FALSE;
+        try {
+            List<CompletableFuture<Void>> writes = new ArrayList<>(next.getChunks());
+            for (int i = 0; i<next.getChunks(); i++) {
+                int from = i * chunkSize;
+                byte[] chunk = Arrays.copyOfRange(value, from, Math.min(value.length, from + chunkSize));
+                writes.add(createInBackground(chunkPath(path, next.getGeneration(), i), chunk));
+            }
+            try {
+                CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).get();
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            }
+
+            List<CuratorOp> ops = new ArrayList<>(current.getChunks() + 1);
+            ops.add(client.transactionOp().setData().withVersion(stat.getVersion()).forPath(path, objectMapper.writeValueAsBytes(next)));
+            for (int i = 0; i<current.getChunks(); i++) {
+                ops.add(client.transactionOp().delete().forPath(chunkPath(path, current.getGeneration(), i)));
+            }
+            try {
+                client.transaction().forOperations(ops);
+            } catch (Exception e) {
+                // 事务已提交但响应丢失时，重试会返回BadVersion
+                committed = isCurrent(path, next);
+                if (committed==null || !committed) {
+                    if (e instanceof KeeperException.BadVersionException) {
+                        throw new CuratorClientException("并发写入冲突，清单已被其他客户端更新：" + path, e);
+                    }
+                    throw e;
+                }
+            }
+            committed = Boolean.TRUE;
+        } finally {
+            if (committed==null) {
+                log.warn("blob transaction outcome unknown, chunks of generation {} may be orphaned, path: {}", next.getGeneration(), path);
+            } else if (!committed) {
+                deleteChunks(path, next);
+            }
+        }
+        synchronized (localCopies) {
+            localCopies.put(path, new LocalCopy(next.getSha256(), value.clone()));
+        }
+    }
+
+    /**
+     * 读取数据
+     *
+     * @param path 节点名称
+     * @return 数据
+     */
+    public byte[] get(String path) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            Manifest manifest = readManifest(path, new Stat());
+            if (manifest==null) {
+                throw new KeeperException.NoNodeException(path);
+            }
+            LocalCopy copy;
+            synchronized (localCopies) {
+                copy = localCopies.get(path);
+            }
+            if (copy!=null && copy.sha256.equals(manifest.getSha256())) {
+                return copy.value.clone();
+            }
+            try {
+                byte[] value = fetch(path, manifest);
+                synchronized (localCopies) {
+                    localCopies.put(path, new LocalCopy(manifest.getSha256(), value));
+                }
+                return value.clone();
+            } catch (KeeperException.NoNodeException e) {
+                // 读取过程中清单被替换，旧分块已删除，重新读取清单
+                if (attempt>=MAX_READ_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private byte[] fetch(String path, Manifest manifest) throws Exception {
+        byte[] value = new byte[manifest.getSize()];
+        List<CompletableFuture<Void>> reads = new ArrayList<>(manifest.getChunks());
+        for (int i = 0; i<manifest.getChunks(); i++) {
+            int offset = i * manifest.getChunkSize();
+            reads.add(BackgroundReads.getData(client, chunkPath(path, manifest.getGeneration(), i)).thenAccept(chunk -> {
+                if (offset + chunk.length>value.length) {
+                    throw new CuratorClientException("分块长度与清单不一致：" + path);
+                }
+                System.arraycopy(chunk, 0, value, offset, chunk.length);
+            }));
+        }
+        try {
+            CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        if (!sha256(value).equals(manifest.getSha256())) {
+            throw new CuratorClientException("数据校验失败：" + path);
+        }
+        return value;
+    }
+
+    private Manifest readManifest(String path, Stat stat) throws Exception {
+        try {
+            byte[] data = client.getData().storingStatIn(stat).forPath(path);
+            return objectMapper.readValue(data, Manifest.class);
+        } catch (KeeperException.NoNodeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 清单是否已指向指定的一代分块
+     *
+     * @return 无法读取清单时为null
+     */
+    private Boolean isCurrent(String path, Manifest next) {
+        try {
+            Manifest manifest = readManifest(path, new Stat());
+            return manifest!=null && next.getGeneration().equals(manifest.getGeneration());
+        } catch (Exception e) {
+            log.debug("read blob manifest failed, path: {}", path, e);
+            return null;
+        }
+    }
+
+    private CompletableFuture<Void> createInBackground(String path, byte[] data) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            client.create().withMode(CreateMode.PERSISTENT).inBackground((c, event) -> {
+                if (event.getResultCode()==KeeperException.Code.OK.intValue()) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(KeeperException.create(KeeperException.Code.get(event.getResultCode()), event.getPath()));
+                }
+            }).forPath(path, data);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void deleteChunks(String path, Manifest manifest) {
+        for (int i = 0; i<manifest.getChunks(); i++) {
+            try {
+                client.delete().guaranteed().inBackground().forPath(chunkPath(path, manifest.getGeneration(), i));
+            } catch (Exception e) {
+                log.warn("delete orphan chunk failed, path: {}", path, e);
+            }
+        }
+    }
+
+    private static String chunkPath(String path, String generation, int index) {
+        return path + "/" + CHUNK_PREFIX + generation + "-" + index;
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+
+    private static String sha256(byte[] value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value);
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b>>4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new CuratorClientException(e);
+        }
+    }
+
+    /**
+     * 主节点中保存的清单
+     */
+    @Data
+    public static class Manifest {
+        private long version;
+        private String generation = "";
+        private int size;
+        private int chunkSize;
+        private int chunks;
+        private String sha256 = "";
+    }
+
+    private static final class LocalCopy {
+        final String sha256;
+        final byte[] value;
+
+        LocalCopy(String sha256, byte[] value) {
+            this.sha256 = sha256;
+            this.value = value;
+        }
+    }
+
+}
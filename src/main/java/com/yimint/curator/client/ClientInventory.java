@@ -0,0 +1,307 @@
+package com.yimint.curator.client;
+
+import com.yimint.curator.jfr.FlightEvents;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * 客户端持有的缓存、监听器和锁的清单
+ * watch()启动或复用的缓存、其上的监听器（事件数、处理耗时、线程池排队延迟）以及通过acquire()/release()持有或等待的锁，
+ * 用于排查内存和watch数量的增长，不需要堆转储。
+ */
+public class ClientInventory {
+
+    /**
+     * 每个缓存节点的固定开销估算：ChildData、Stat、map条目与对象头
+     */
+    private static final int NODE_OVERHEAD_BYTES = 160;
+
+    /**
+     * 弱引用：关闭后不再被引用的缓存自动从清单中消失，仍在运行的缓存被zookeeper的watcher引用
+     */
+    private final Map<CuratorCache, CacheRecord> caches = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<InterProcessLock, LockRecord> locks = new ConcurrentHashMap<>();
+    private final Map<InterProcessLock, String> lockPaths = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 记录缓存
+     *
+     * @param path  缓存路径
+     * @param cache 缓存
+     */
+    void onCacheStarted(String path, CuratorCache cache) {
+        caches.computeIfAbsent(cache, c -> new CacheRecord(path));
+    }
+
+    /**
+     * 包装监听器以统计事件，pool不为null时同时统计线程池排队延迟
+     *
+     * @param path     缓存路径
+     * @param cache    缓存
+     * @param listener 监听器
+     * @param pool     处理事件的线程池
+     * @param decoder  事件中的节点数据交给监听器之前的转换，例如解压
+     * @return 包装后的监听器
+     */
+    InstrumentedListener instrument(String path, CuratorCache cache, CuratorCacheListener listener, Executor pool,
+                                    UnaryOperator<ChildData> decoder) {
+        CacheRecord record = caches.computeIfAbsent(cache, c -> new CacheRecord(path));
+        InstrumentedListener instrumented = new InstrumentedListener(path, listener, pool, decoder);
+        record.listeners.put(listener, instrumented);
+        return instrumented;
+    }
+
+    /**
+     * 移除监听器
+     *
+     * @return 包装后的监听器，未记录时返回原监听器
+     */
+    CuratorCacheListener remove(CuratorCache cache, CuratorCacheListener listener) {
+        CacheRecord record = caches.get(cache);
+        InstrumentedListener instrumented = record==null ? null : record.listeners.remove(listener);
+        return instrumented==null ? listener : instrumented;
+    }
+
+    void clearCaches() {
+        caches.clear();
+    }
+
+    void onLockCreated(InterProcessLock lock, String path) {
+        lockPaths.put(lock, path);
+    }
+
+    void onAcquiring(InterProcessLock lock) {
+        record(lock).waiters.put(Thread.currentThread(), System.currentTimeMillis());
+    }
+
+    void onAcquired(InterProcessLock lock, boolean acquired) {
+        LockRecord record = record(lock);
+        record.waiters.remove(Thread.currentThread());
+        if (acquired) {
+            synchronized (record) {
+                Hold hold = record.holders.computeIfAbsent(Thread.currentThread(), t -> new Hold());
+                if (hold.count++==0) {
+                    hold.event = FlightEvents.beginLockHold();
+                }
+            }
+        }
+        cleanUp(lock, record);
+    }
+
+    /**
+     * 释放锁
+     * InterProcessSemaphoreMutex等不可重入的锁允许由获取线程以外的线程释放，当前线程没有持有记录时，
+     * 该锁只有一个持有线程则释放该线程的记录；有多个持有线程时无法确定释放的是哪一个，保留记录
+     */
+    void onReleased(InterProcessLock lock) {
+        LockRecord record = locks.get(lock);
+        if (record==null) {
+            return;
+        }
+        synchronized (record) {
+            Thread holder = Thread.currentThread();
+            Hold hold = record.holders.get(holder);
+            if (hold==null && record.holders.size()==1) {
+                Map.Entry<Thread, Hold> only = record.holders.entrySet().iterator().next();
+                holder = only.getKey();
+                hold = only.getValue();
+            }
+            if (hold!=null && --hold.count<=0) {
+                record.holders.remove(holder);
+                FlightEvents.endLockHold(hold.event, record.path, record.type);
+            }
+        }
+        cleanUp(lock, record);
+    }
+
+    /**
+     * 锁的路径，不是通过客户端创建的锁返回类名
+     *
+     * @param lock 分布式锁对象
+     * @return 路径
+     */
+    String lockPath(InterProcessLock lock) {
+        String path = lockPaths.get(lock);
+        return path!=null ? path : lock.getClass().getSimpleName();
+    }
+
+    private LockRecord record(InterProcessLock lock) {
+        return locks.computeIfAbsent(lock, l -> new LockRecord(lockPath(l), l.getClass().getSimpleName()));
+    }
+
+    private void cleanUp(InterProcessLock lock, LockRecord record) {
+        if (record.holders.isEmpty() && record.waiters.isEmpty()) {
+            locks.remove(lock, record);
+        }
+    }
+
+    /**
+     * 缓存清单
+     *
+     * @return 每个缓存的路径、节点数、内存估算和监听器统计
+     */
+    public List<Map<String, Object>> cacheReport() {
+        Map<CuratorCache, CacheRecord> snapshot;
+        synchronized (caches) {
+            snapshot = new LinkedHashMap<>(caches);
+        }
+        List<Map<String, Object>> report = new ArrayList<>();
+        snapshot.forEach((cache, record) -> {
+            long nodes = 0;
+            long bytes = 0;
+            for (ChildData data : (Iterable<ChildData>) cache.stream()::iterator) {
+                nodes++;
+                bytes += NODE_OVERHEAD_BYTES + data.getPath().length() * 2L + (data.getData()==null ? 0 : data.getData().length);
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("path", record.path);
+            item.put("nodes", nodes);
+            item.put("estimatedBytes", bytes);
+            List<Map<String, Object>> listeners = new ArrayList<>();
+            record.listeners.forEach((listener, instrumented) -> listeners.add(instrumented.report(listener)));
+            item.put("listeners", listeners);
+            report.add(item);
+        });
+        return report;
+    }
+
+    /**
+     * 锁清单
+     *
+     * @return 每把锁的路径、持有线程和等待线程
+     */
+    public List<Map<String, Object>> lockReport() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> report = new ArrayList<>();
+        locks.forEach((lock, record) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("path", record.path);
+            item.put("type", record.type);
+            Map<String, Object> holders = new LinkedHashMap<>();
+            record.holders.forEach((thread, hold) -> holders.put(thread.getName(), now - hold.since));
+            Map<String, Object> waiters = new LinkedHashMap<>();
+            record.waiters.forEach((thread, since) -> waiters.put(thread.getName(), now - since));
+            item.put("heldMs", holders);
+            item.put("waitingMs", waiters);
+            report.add(item);
+        });
+        return report;
+    }
+
+    private static final class CacheRecord {
+        final String path;
+        final Map<CuratorCacheListener, InstrumentedListener> listeners = new ConcurrentHashMap<>();
+
+        CacheRecord(String path) {
+            this.path = path;
+        }
+    }
+
+    private static final class LockRecord {
+        final String path;
+        final String type;
+        final Map<Thread, Hold> holders = new ConcurrentHashMap<>();
+        final Map<Thread, Long> waiters = new ConcurrentHashMap<>();
+
+        LockRecord(String path, String type) {
+            this.path = path;
+            this.type = type;
+        }
+    }
+
+    private static final class Hold {
+        final long since = System.currentTimeMillis();
+        int count;
+        Object event;
+    }
+
+    /**
+     * 统计事件数、处理耗时和排队延迟的监听器
+     */
+    static final class InstrumentedListener implements CuratorCacheListener {
+
+        private final CuratorCacheListener delegate;
+        private final UnaryOperator<ChildData> decoder;
+        private final Executor executor;
+        private final long registeredAt = System.nanoTime();
+        private final LongAdder events = new LongAdder();
+        private final LongAdder handleNanos = new LongAdder();
+        private final LongAdder lagNanos = new LongAdder();
+        private final LongAdder dispatched = new LongAdder();
+        private final AtomicLong maxLagNanos = new AtomicLong();
+        private volatile long lastEventAt;
+
+        InstrumentedListener(String path, CuratorCacheListener delegate, Executor pool, UnaryOperator<ChildData> decoder) {
+            this.delegate = delegate;
+            this.decoder = decoder;
+            this.executor = pool==null ? null : command -> {
+                long submitted = System.nanoTime();
+                Object event = FlightEvents.beginCacheDispatch();
+                pool.execute(() -> {
+                    FlightEvents.endCacheDispatch(event, path, delegate.getClass().getName());
+                    long lag = System.nanoTime() - submitted;
+                    lagNanos.add(lag);
+                    dispatched.increment();
+                    maxLagNanos.accumulateAndGet(lag, Math::max);
+                    command.run();
+                });
+            };
+        }
+
+        /**
+         * 包装后的线程池，统计事件在线程池中的排队时间
+         */
+        Executor executor() {
+            return executor;
+        }
+
+        @Override
+        public void event(Type type, ChildData oldData, ChildData data) {
+            long start = System.nanoTime();
+            try {
+                delegate.event(type, oldData==null ? null : decoder.apply(oldData), data==null ? null : decoder.apply(data));
+            } finally {
+                events.increment();
+                handleNanos.add(System.nanoTime() - start);
+                lastEventAt = System.currentTimeMillis();
+            }
+        }
+
+        @Override
+        public void initialized() {
+            delegate.initialized();
+        }
+
+        Map<String, Object> report(CuratorCacheListener listener) {
+            long count = events.sum();
+            long queued = dispatched.sum();
+            double seconds = Math.max(1, System.nanoTime() - registeredAt) / 1e9;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("listener", listener.getClass().getName());
+            item.put("events", count);
+            item.put("eventsPerSecond", count / seconds);
+            item.put("avgHandleMs", count==0 ? 0 : handleNanos.sum() / 1e6 / count);
+            item.put("avgLagMs", queued==0 ? 0 : lagNanos.sum() / 1e6 / queued);
+            item.put("maxLagMs", TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()));
+            item.put("lastEventAt", lastEventAt);
+            return item;
+        }
+
+    }
+
+}
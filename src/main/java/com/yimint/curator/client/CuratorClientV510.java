@@ -1,21 +1,58 @@
 package com.yimint.curator.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yimint.curator.codec.BytesNodeCodec;
+import com.yimint.curator.codec.DecodedNodeCache;
+import com.yimint.curator.codec.JsonNodeCodec;
+import com.yimint.curator.codec.NodeCodecRegistry;
+import com.yimint.curator.codec.ProtobufNodeCodec;
+import com.yimint.curator.codec.StringNodeCodec;
+import com.yimint.curator.compress.AdaptiveCompressionProvider;
+import com.yimint.curator.discovery.ServiceRegistry;
 import com.yimint.curator.exception.CuratorClientException;
+import com.yimint.curator.jfr.FlightEvents;
+import com.yimint.curator.recipes.DistributedCounter;
+import com.yimint.curator.recipes.DistributedIdGenerator;
+import com.yimint.curator.recipes.DistributedRateLimiter;
+import com.yimint.curator.recipes.DistributedWorkQueue;
+import com.yimint.curator.recipes.PartitionAssigner;
+import com.yimint.curator.recipes.PooledSemaphore;
+import com.yimint.curator.retry.CircuitBreaker;
+import com.yimint.curator.retry.RetryBudget;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.CuratorCache;
 import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
 import org.apache.curator.framework.recipes.locks.*;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
 
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
  * zookeeper工具
@@ -42,6 +79,28 @@ public class CuratorClientV510 {
     private static final String DEFAULT_CHARSET = "utf8";
     private CuratorFramework client;
     private String charset = DEFAULT_CHARSET;
+    private Charset nodeCharset = Charset.forName(DEFAULT_CHARSET);
+    private volatile ConnectionState connectionState;
+    private volatile long connectionStateAt;
+    private SuspendedWriteBuffer writeBuffer;
+    private RetryBudget retryBudget;
+    private CircuitBreaker circuitBreaker;
+    private ReadHedger readHedger;
+    private final Map<String, WarmedCache> warmedCaches = new ConcurrentHashMap<>();
+    private final ClientInventory inventory = new ClientInventory();
+    private NodeCodecRegistry codecRegistry;
+    private DecodedNodeCache decodedNodeCache;
+    private AdaptiveCompressionProvider compressionProvider;
+    private ChunkedBlobStore blobStore;
+    private ExistenceIndex existenceIndex;
+    private ScheduledExecutorService scheduler;
+    private final Map<String, DistributedIdGenerator> idGenerators = new ConcurrentHashMap<>();
+    private final Map<String, DistributedCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, DistributedRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private final Map<String, PartitionAssigner> partitionAssigners = new ConcurrentHashMap<>();
+    private final Map<String, DistributedWorkQueue> workQueues = new ConcurrentHashMap<>();
+    private final Map<String, ServiceRegistry> serviceRegistries = new ConcurrentHashMap<>();
+    private final Map<String, PooledSemaphore> pooledSemaphores = new ConcurrentHashMap<>();
 
     public CuratorClientV510(CuratorFrameworkFactory.Builder builder) {
         if (builder==null) {
@@ -55,13 +114,40 @@ public class CuratorClientV510 {
             throw new CuratorClientException("builder不能为null");
         }
         client = builder.build();
+        setCharset(charset);
+    }
+
+    /**
+     * 设置节点数据编码，字符集只在这里解析一次
+     *
+     * @param charset 字符集名称
+     */
+    public void setCharset(String charset) {
+        this.nodeCharset = Charset.forName(charset);
         this.charset = charset;
     }
 
     public void init() {
         client.start();
+        if (readHedger!=null) {
+            readHedger.start();
+        }
+        if (existenceIndex!=null) {
+            existenceIndex.start();
+        }
         client.getConnectionStateListenable().addListener((client, state) -> {
-            if (state==ConnectionState.LOST) {
+            long now = System.currentTimeMillis();
+            FlightEvents.connectionStateChanged(state.name(), connectionState==null ? null : connectionState.name(),
+                    connectionState==null ? 0 : now - connectionStateAt);
+            connectionState = state;
+            connectionStateAt = now;
+            if (writeBuffer!=null) {
+                writeBuffer.onStateChanged(state);
+            }
+            if (state==ConnectionState.SUSPENDED) {
+                // 连接挂起
+                log.info("suspended connection with zookeeper");
+            } else if (state==ConnectionState.LOST) {
                 // 连接丢失
                 log.info("lost session with zookeeper");
             } else if (state==ConnectionState.CONNECTED) {
@@ -75,11 +161,98 @@ public class CuratorClientV510 {
     }
 
     public void stop() {
+        // 先合并计数器中未提交的增量
+        counters.values().forEach(DistributedCounter::close);
+        rateLimiters.values().forEach(DistributedRateLimiter::close);
+        partitionAssigners.values().forEach(PartitionAssigner::close);
+        serviceRegistries.values().forEach(ServiceRegistry::close);
+        // 在关闭会话之前删除空闲池中的租约节点
+        pooledSemaphores.values().forEach(PooledSemaphore::close);
+        synchronized (this) {
+            if (scheduler!=null) {
+                scheduler.shutdownNow();
+            }
+        }
+        warmedCaches.values().forEach(warmed -> warmed.cache.close());
+        inventory.clearCaches();
+        if (existenceIndex!=null) {
+            existenceIndex.close();
+        }
+        if (writeBuffer!=null) {
+            writeBuffer.close();
+        }
+        if (readHedger!=null) {
+            readHedger.close();
+        }
         client.close();
     }
 
     /**
-     * 创建节点
+     * 执行一次zookeeper操作
+     * 熔断器打开或当前线程绑定的截止时间已过时快速失败；操作结果计入重试预算与熔断器的统计，异常统一包装为CuratorClientException。
+     * 开启JFR事件时每次调用记录一个com.yimint.curator.Operation事件
+     *
+     * @param operation 操作类型
+     * @param path 节点名称
+     * @param bytes 写入的字节数，读操作返回byte[]时以返回的长度为准
+     * @param errorMessage 失败时的异常信息
+     * @param call 具体操作
+     * @return 操作结果
+     */
+    private <T> T execute(String operation, String path, long bytes, String errorMessage, Callable<T> call) {
+        Object event = FlightEvents.beginOperation();
+        String resultCode = FlightEvents.OK;
+        long size = bytes;
+        try {
+            Deadline deadline = Deadline.current();
+            if (deadline!=null && deadline.isExpired()) {
+                resultCode = "DEADLINE_EXCEEDED";
+                throw new CuratorClientException(errorMessage + "：已超过截止时间");
+            }
+            if (circuitBreaker!=null && !circuitBreaker.allowRequest()) {
+                resultCode = "CIRCUIT_OPEN";
+                throw new CuratorClientException(errorMessage + "：熔断器已打开，快速失败");
+            }
+            try {
+                T result = retryBudget==null ? call.call() : retryBudget.call(call);
+                if (result instanceof byte[]) {
+                    size = ((byte[]) result).length;
+                }
+                if (circuitBreaker!=null) {
+                    circuitBreaker.onSuccess();
+                }
+                return result;
+            } catch (Exception e) {
+                if (e instanceof ExecutionException && e.getCause() instanceof Exception) {
+                    e = (Exception) e.getCause();
+                }
+                resultCode = FlightEvents.resultCode(e);
+                if (circuitBreaker!=null) {
+                    if (isConnectionFailure(e)) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        // 节点不存在、版本冲突等业务错误说明zookeeper本身是可用的
+                        circuitBreaker.onSuccess();
+                    }
+                }
+                throw new CuratorClientException(errorMessage, e);
+            }
+        } finally {
+            FlightEvents.endOperation(event, operation, path, size, resultCode);
+        }
+    }
+
+    private static boolean isConnectionFailure(Exception e) {
+        if (!(e instanceof KeeperException)) {
+            return false;
+        }
+        KeeperException.Code code = ((KeeperException) e).code();
+        return code==KeeperException.Code.CONNECTIONLOSS || code==KeeperException.Code.OPERATIONTIMEOUT
+                || code==KeeperException.Code.SESSIONEXPIRED || code==KeeperException.Code.SESSIONMOVED;
+    }
+
+    /**
+     * 创建节点，节点已存在时抛出异常；不经过写缓冲，需要缓冲时使用createNodeIfAbsentBuffered
      *
      * @param mode     节点类型
      *                 1、PERSISTENT 持久化目录节点，存储的数据不会丢失。
@@ -90,16 +263,26 @@ public class CuratorClientV510 {
      * @param nodeData 节点数据
      */
     public void createNode(CreateMode mode, String path, String nodeData) {
-        try {
-            // 使用creatingParentContainersIfNeeded()之后Curator能够自动递归创建所有所需的父节点
-            client.create().creatingParentsIfNeeded().withMode(mode).forPath(path, nodeData.getBytes(Charset.forName(charset)));
-        } catch (Exception e) {
-            throw new CuratorClientException("注册出错", e);
-        }
+        byte[] data = compress(path, nodeData.getBytes(nodeCharset));
+        // 使用creatingParentContainersIfNeeded()之后Curator能够自动递归创建所有所需的父节点
+        Stat stat = execute("create", path, data.length, "注册出错", () -> create(mode, path, data));
+        onCreated(mode, path, stat);
     }
 
     /**
-     * 创建节点
+     * 在截止时间内创建节点
+     *
+     * @param mode     节点类型
+     * @param path     节点名称
+     * @param nodeData 节点数据
+     * @param deadline 截止时间
+     */
+    public void createNode(CreateMode mode, String path, String nodeData, Deadline deadline) {
+        deadline.run(() -> createNode(mode, path, nodeData));
+    }
+
+    /**
+     * 创建节点，节点已存在时抛出异常；不经过写缓冲，需要缓冲时使用createNodeIfAbsentBuffered
      *
      * @param mode 节点类型
      *             1、PERSISTENT 持久化目录节点，存储的数据不会丢失。
@@ -109,12 +292,35 @@ public class CuratorClientV510 {
      * @param path 节点名称
      */
     public void createNode(CreateMode mode, String path) {
-        try {
-            // 使用creatingParentContainersIfNeeded()之后Curator能够自动递归创建所有所需的父节点
-            client.create().creatingParentsIfNeeded().withMode(mode).forPath(path);
-        } catch (Exception e) {
-            throw new CuratorClientException("注册出错", e);
-        }
+        // 使用creatingParentContainersIfNeeded()之后Curator能够自动递归创建所有所需的父节点
+        Stat stat = execute("create", path, 0, "注册出错", () -> create(mode, path, null));
+        onCreated(mode, path, stat);
+    }
+
+    /**
+     * 创建节点并返回新建节点的状态，供存在性索引记录czxid
+     *
+     * @param data 节点数据，为null时使用Curator的默认数据
+     */
+    private Stat create(CreateMode mode, String path, byte[] data) throws Exception {
+        Stat stat = new Stat();
+        return withinDeadline(
+                () -> {
+                    if (data==null) {
+                        client.create().storingStatIn(stat).creatingParentsIfNeeded().withMode(mode).forPath(path);
+                    } else {
+                        client.create().storingStatIn(stat).creatingParentsIfNeeded().withMode(mode).forPath(path, data);
+                    }
+                    return stat;
+                },
+                callback -> {
+                    if (data==null) {
+                        client.create().storingStatIn(stat).creatingParentsIfNeeded().withMode(mode).inBackground(callback).forPath(path);
+                    } else {
+                        client.create().storingStatIn(stat).creatingParentsIfNeeded().withMode(mode).inBackground(callback).forPath(path, data);
+                    }
+                },
+                CuratorEvent::getStat);
     }
 
     /**
@@ -131,37 +337,151 @@ public class CuratorClientV510 {
     }
 
     /**
-     * 删除节点数据
+     * 删除节点数据，不经过写缓冲，需要缓冲时使用deleteNodeBuffered
      *
      * @param path 节点名称
      * @param deleteChildre 是否删除子节点
      */
     public void deleteNode(final String path, Boolean deleteChildre) {
-        try {
-            if (deleteChildre) {
-                // guaranteed()删除一个节点，强制保证删除,
-                // 只要客户端会话有效，那么Curator会在后台持续进行删除操作，直到删除节点成功
-                client.delete().guaranteed().deletingChildrenIfNeeded().forPath(path);
-            } else {
-                client.delete().guaranteed().forPath(path);
-            }
-        } catch (Exception e) {
-            throw new CuratorClientException("删除节点失败", e);
+        // guaranteed()删除一个节点，强制保证删除,
+        // 只要客户端会话有效，那么Curator会在后台持续进行删除操作，直到删除节点成功
+        if (deleteChildre) {
+            execute("delete", path, 0, "删除节点失败", () -> withinDeadline(
+                    () -> client.delete().guaranteed().deletingChildrenIfNeeded().forPath(path),
+                    callback -> client.delete().guaranteed().deletingChildrenIfNeeded().inBackground(callback).forPath(path),
+                    event -> null));
+        } else {
+            execute("delete", path, 0, "删除节点失败", () -> withinDeadline(
+                    () -> client.delete().guaranteed().forPath(path),
+                    callback -> client.delete().guaranteed().inBackground(callback).forPath(path),
+                    event -> null));
+        }
+        if (existenceIndex!=null) {
+            existenceIndex.onDeleted(path, deleteChildre);
         }
     }
 
     /**
-     * 设置指定节点的数据
+     * 在后台删除节点，不等待结果
+     * 使用guaranteed()语义，连接中断时在重新连接后继续删除，适合在关闭时清理临时节点
+     *
+     * @param path 节点名称
+     */
+    public void deleteNodeInBackground(String path) {
+        execute("delete", path, 0, "删除节点失败", () -> client.delete().guaranteed().inBackground().forPath(path));
+        if (existenceIndex!=null) {
+            existenceIndex.onDeleted(path, false);
+        }
+    }
+
+    private void onCreated(CreateMode mode, String path, Stat stat) {
+        // 顺序节点的实际名称与请求的路径不同，由缓存事件更新
+        if (existenceIndex!=null && !mode.isSequential()) {
+            existenceIndex.onCreated(path, stat);
+        }
+    }
+
+    /**
+     * 设置指定节点的数据，不经过写缓冲，需要缓冲时使用setNodeDataBuffered
      *
      * @param path 节点名称
      * @param data 节点数据
      */
     public void setNodeData(String path, String data) {
+        writeData(path, data.getBytes(nodeCharset));
+    }
+
+    private void writeData(String path, byte[] data) {
+        writeCompressed(path, compress(path, data));
+    }
+
+    private void writeCompressed(String path, byte[] bytes) {
+        execute("setData", path, bytes.length, "设置节点数据失败", () -> withinDeadline(
+                () -> client.setData().forPath(path, bytes),
+                callback -> client.setData().inBackground(callback).forPath(path, bytes),
+                CuratorEvent::getStat));
+    }
+
+    /**
+     * 在截止时间内设置指定节点的数据
+     *
+     * @param path 节点名称
+     * @param data 节点数据
+     * @param deadline 截止时间
+     */
+    public void setNodeData(String path, String data, Deadline deadline) {
+        deadline.run(() -> setNodeData(path, data));
+    }
+
+    /**
+     * 设置指定节点的数据，连接挂起期间进入写缓冲
+     * 未开启写缓冲或连接正常时直接写入；挂起期间进入缓冲区后立即返回，重连后重放。
+     * 返回的结果在写入zookeeper后完成，写入失败、按LostPolicy被丢弃、重放失败或客户端关闭时异常完成
+     *
+     * @param path 节点名称
+     * @param data 节点数据
+     * @return 写入结果
+     */
+    public CompletableFuture<Void> setNodeDataBuffered(String path, String data) {
+        byte[] bytes = compress(path, data.getBytes(nodeCharset));
+        CompletableFuture<Void> buffered = writeBuffer==null ? null : writeBuffer.offerSet(path, bytes);
+        if (buffered!=null) {
+            return buffered;
+        }
+        return complete(() -> writeCompressed(path, bytes));
+    }
+
+    /**
+     * 节点不存在时创建，连接挂起期间进入写缓冲，节点已存在视为成功；顺序节点不是幂等操作，不进入缓冲
+     * 缓冲的创建不记入存在性索引（挂起期间索引返回UNKNOWN），重放后由缓存事件更新
+     *
+     * @param mode     节点类型
+     * @param path     节点名称
+     * @param nodeData 节点数据
+     * @return 写入结果，语义与setNodeDataBuffered相同
+     */
+    public CompletableFuture<Void> createNodeIfAbsentBuffered(CreateMode mode, String path, String nodeData) {
+        byte[] data = compress(path, nodeData.getBytes(nodeCharset));
+        CompletableFuture<Void> buffered = writeBuffer==null ? null : writeBuffer.offerCreate(mode, path, data);
+        if (buffered!=null) {
+            return buffered;
+        }
+        return complete(() -> createNodeIfAbsent(mode, path, nodeData));
+    }
+
+    /**
+     * 删除节点，连接挂起期间进入写缓冲，节点不存在视为成功；使用guaranteed()语义，LOST时不会被丢弃
+     * 缓冲的删除不记入存在性索引
+     *
+     * @param path           节点名称
+     * @param deleteChildren 是否删除子节点
+     * @return 写入结果，语义与setNodeDataBuffered相同
+     */
+    public CompletableFuture<Void> deleteNodeBuffered(String path, boolean deleteChildren) {
+        CompletableFuture<Void> buffered = writeBuffer==null ? null : writeBuffer.offerDelete(path, deleteChildren, true);
+        if (buffered!=null) {
+            return buffered;
+        }
+        return complete(() -> {
+            try {
+                deleteNode(path, deleteChildren);
+            } catch (CuratorClientException e) {
+                if (!(e.getCause() instanceof KeeperException.NoNodeException)) {
+                    throw e;
+                }
+            }
+        });
+    }
+
+    private static CompletableFuture<Void> complete(Runnable write) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
         try {
-            client.setData().forPath(path, data.getBytes(Charset.forName(charset)));
-        } catch (Exception ex) {
-            throw new CuratorClientException("设置节点数据失败", ex);
+            write.run();
+            result.complete(null);
+        } catch (CuratorClientException e) {
+            result.completeExceptionally(e);
         }
+        return result;
     }
 
     /**
@@ -171,10 +491,248 @@ public class CuratorClientV510 {
      * @return 节点数据
      */
     public String getNodeData(String path) {
+        return new String(decompress(path, execute("getData", path, 0, "获取指定节点的数据失败", () -> readData(path)).getData()), nodeCharset);
+    }
+
+    /**
+     * 在截止时间内获取指定节点的数据
+     *
+     * @param path 节点名称
+     * @param deadline 截止时间
+     * @return 节点数据
+     */
+    public String getNodeData(String path, Deadline deadline) {
+        return deadline.call(() -> getNodeData(path));
+    }
+
+    /**
+     * 读取节点数据和状态
+     * 未绑定截止时间且未开启对冲时直接前台读取；否则以后台方式读取，最多等待到截止时间
+     */
+    private ChildData readData(String path) throws Exception {
+        Deadline deadline = Deadline.current();
+        if (deadline==null && readHedger==null) {
+            Stat stat = new Stat();
+            byte[] data = client.getData().storingStatIn(stat).forPath(path);
+            return new ChildData(path, stat, data);
+        }
+        CompletableFuture<ChildData> future = readHedger!=null ? readHedger.read(path) : BackgroundReads.getChildData(client, path);
+        return await(future, deadline);
+    }
+
+    /**
+     * 在当前线程绑定的截止时间内执行一次操作
+     * 未绑定截止时间时直接前台执行；否则以后台方式执行，最多等待到截止时间。
+     * 前台调用在连接断开时会先在Curator的连接等待中阻塞至多connectionTimeoutMs，之后才询问重试策略，无法在截止时间到达时返回。
+     * 超时返回的写操作仍可能在之后被服务端执行
+     *
+     * @param foreground 前台操作
+     * @param background 以指定回调发起的后台操作
+     * @param result     从后台事件中取出结果
+     * @return 操作结果
+     */
+    private <T> T withinDeadline(Callable<T> foreground, BackgroundCall background, Function<CuratorEvent, T> result) throws Exception {
+        Deadline deadline = Deadline.current();
+        if (deadline==null) {
+            return foreground.call();
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
         try {
-            return new String(client.getData().forPath(path), Charset.forName(charset));
+            background.start((framework, event) -> {
+                if (event.getResultCode()==KeeperException.Code.OK.intValue()) {
+                    future.complete(result.apply(event));
+                } else {
+                    future.completeExceptionally(KeeperException.create(KeeperException.Code.get(event.getResultCode()), event.getPath()));
+                }
+            });
         } catch (Exception e) {
-            throw new CuratorClientException("获取指定节点的数据失败", e);
+            future.completeExceptionally(e);
+        }
+        return await(future, deadline);
+    }
+
+    private static <T> T await(CompletableFuture<T> future, Deadline deadline) throws Exception {
+        if (deadline==null) {
+            return future.get();
+        }
+        try {
+            return future.get(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 以指定回调发起一次后台操作
+     */
+    private interface BackgroundCall {
+        void start(BackgroundCallback callback) throws Exception;
+    }
+
+    /**
+     * 获取指定节点的数据并解码为指定类型
+     * 开启解码缓存时，节点的mzxid未变化则直接返回上一次的解码结果，返回的对象应当视为只读
+     *
+     * @param path 节点名称
+     * @param type 数据类型
+     * @return 节点数据
+     */
+    public <T> T get(String path, Class<T> type) {
+        ChildData data = execute("getData", path, 0, "获取指定节点的数据失败", () -> readData(path));
+        long mzxid = data.getStat().getMzxid();
+        if (decodedNodeCache!=null) {
+            T cached = decodedNodeCache.get(path, mzxid, type);
+            if (cached!=null) {
+                return cached;
+            }
+        }
+        T value = getCodecRegistry().decode(decompress(path, data.getData()), type);
+        if (decodedNodeCache!=null) {
+            decodedNodeCache.put(path, mzxid, type, value);
+        }
+        return value;
+    }
+
+    /**
+     * 编码后设置指定节点的数据
+     *
+     * @param path 节点名称
+     * @param value 节点数据
+     */
+    public <T> void set(String path, T value) {
+        writeData(path, getCodecRegistry().encode(value));
+    }
+
+    /**
+     * 编解码器注册表，未配置时使用内置的字节、字符串、protobuf风格和JSON编解码器
+     *
+     * @return 编解码器注册表
+     */
+    public NodeCodecRegistry getCodecRegistry() {
+        if (codecRegistry==null) {
+            codecRegistry = new NodeCodecRegistry(Arrays.asList(new BytesNodeCodec(), new StringNodeCodec(nodeCharset),
+                    new ProtobufNodeCodec(), new JsonNodeCodec(new ObjectMapper())));
+        }
+        return codecRegistry;
+    }
+
+    /**
+     * 写入可能超过单节点大小限制的数据，超过分块大小的部分拆分到子节点中保存，清单切换是原子的
+     *
+     * @param path 节点名称
+     * @param value 数据
+     */
+    public void setBlob(String path, byte[] value) {
+        execute("setBlob", path, value.length, "写入分块数据失败", () -> {
+            getBlobStore().put(path, value);
+            return null;
+        });
+    }
+
+    /**
+     * 读取setBlob()写入的数据，分块并行获取，数据未变化时直接返回本地副本
+     *
+     * @param path 节点名称
+     * @return 数据
+     */
+    public byte[] getBlob(String path) {
+        return execute("getBlob", path, 0, "读取分块数据失败", () -> getBlobStore().get(path));
+    }
+
+    /**
+     * 分块存储，未配置时使用512KB分块、保留16个本地副本
+     *
+     * @return 分块存储
+     */
+    public ChunkedBlobStore getBlobStore() {
+        if (blobStore==null) {
+            blobStore = new ChunkedBlobStore(client, 512 * 1024, 16);
+        }
+        return blobStore;
+    }
+
+    /**
+     * 按压缩策略压缩节点数据，未开启压缩时原样返回
+     */
+    private byte[] compress(String path, byte[] data) {
+        return compressionProvider==null ? data : compressionProvider.compress(path, data);
+    }
+
+    /**
+     * 解压节点数据，没有压缩头部的数据原样返回
+     */
+    private byte[] decompress(String path, byte[] data) {
+        return compressionProvider==null ? data : compressionProvider.decompress(path, data);
+    }
+
+    /**
+     * 解压缓存中的节点数据；自己持有CuratorCache的组件读取createNode/setNodeData写入的数据时使用
+     *
+     * @param data 缓存中的节点
+     * @return 数据已解压的节点，未开启压缩或没有压缩头部时返回原对象
+     */
+    public ChildData decompress(ChildData data) {
+        if (compressionProvider==null || data.getData()==null) {
+            return data;
+        }
+        byte[] decompressed = compressionProvider.decompress(data.getPath(), data.getData());
+        return decompressed==data.getData() ? data : new ChildData(data.getPath(), data.getStat(), decompressed);
+    }
+
+    /**
+     * 获取指定节点的数据和状态
+     *
+     * @param path 节点名称
+     * @param stat 用于保存节点状态，版本号可用于compareAndSetNodeData
+     * @return 节点数据
+     */
+    public String getNodeData(String path, Stat stat) {
+        byte[] data = execute("getData", path, 0, "获取指定节点的数据失败", () -> client.getData().storingStatIn(stat).forPath(path));
+        return new String(decompress(path, data), nodeCharset);
+    }
+
+    /**
+     * 节点版本号一致时设置节点数据
+     *
+     * @param path 节点名称
+     * @param data 节点数据
+     * @param version 期望的版本号
+     * @return true 设置成功，false 版本号不一致
+     */
+    public boolean compareAndSetNodeData(String path, String data, int version) {
+        byte[] bytes = compress(path, data.getBytes(nodeCharset));
+        try {
+            execute("setData", path, bytes.length, "设置节点数据失败", () -> client.setData().withVersion(version).forPath(path, bytes));
+            return true;
+        } catch (CuratorClientException e) {
+            if (e.getCause() instanceof KeeperException.BadVersionException) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 节点不存在时创建节点
+     *
+     * @param mode 节点类型
+     * @param path 节点名称
+     * @param nodeData 节点数据
+     * @return true 创建成功，false 节点已存在
+     */
+    public boolean createNodeIfAbsent(CreateMode mode, String path, String nodeData) {
+        byte[] data = compress(path, nodeData.getBytes(nodeCharset));
+        try {
+            Stat stat = execute("create", path, data.length, "注册出错", () -> create(mode, path, data));
+            onCreated(mode, path, stat);
+            return true;
+        } catch (CuratorClientException e) {
+            if (e.getCause() instanceof KeeperException.NodeExistsException) {
+                onCreated(mode, path, null);
+                return false;
+            }
+            throw e;
         }
     }
 
@@ -193,14 +751,31 @@ public class CuratorClientV510 {
      * 判断节点是否存在
      *
      * @param path 节点名称
-     * @return true 节点存在，false 节点不存在
+     * @return true 节点存在，false 节点不存在或无法判断
      */
     public boolean isExistNode(final String path) {
+        return exists(path)==NodeExistence.EXISTS;
+    }
+
+    /**
+     * 判断节点是否存在，配置了存在性索引的路径直接从内存中回答
+     *
+     * @param path 节点名称
+     * @return EXISTS 节点存在，ABSENT 节点不存在，UNKNOWN 连接中断或请求失败
+     */
+    public NodeExistence exists(final String path) {
+        if (existenceIndex!=null) {
+            NodeExistence indexed = existenceIndex.lookup(path);
+            if (indexed!=null) {
+                return indexed;
+            }
+        }
         client.sync();
         try {
-            return null!=client.checkExists().forPath(path);
-        } catch (Exception e) {
-            return false;
+            return null!=execute("exists", path, 0, "判断节点是否存在出错", () -> client.checkExists().forPath(path))
+                    ? NodeExistence.EXISTS : NodeExistence.ABSENT;
+        } catch (CuratorClientException e) {
+            return NodeExistence.UNKNOWN;
         }
     }
 
@@ -211,13 +786,59 @@ public class CuratorClientV510 {
      * @return 子节点集合
      */
     public List<String> getChildren(String path) {
-        List<String> childrenList;
-        try {
-            childrenList = client.getChildren().forPath(path);
-        } catch (Exception e) {
-            throw new CuratorClientException("获取子节点出错", e);
-        }
-        return childrenList;
+        return execute("getChildren", path, 0, "获取子节点出错", () -> withinDeadline(
+                () -> client.getChildren().forPath(path),
+                callback -> client.getChildren().inBackground(callback).forPath(path),
+                CuratorEvent::getChildren));
+    }
+
+    /**
+     * 在截止时间内获取节点的子节点
+     *
+     * @param path 节点名称
+     * @param deadline 截止时间
+     * @return 子节点集合
+     */
+    public List<String> getChildren(String path, Deadline deadline) {
+        return deadline.call(() -> getChildren(path));
+    }
+
+    /**
+     * 在一个事务(multi-op)中提交多个操作，全部成功或全部失败
+     * 操作通过getClient().transactionOp()构造
+     *
+     * @param path 用于日志和JFR事件的节点名称，通常是操作所属的根节点
+     * @param ops 操作
+     * @return 每个操作的结果
+     */
+    public List<CuratorTransactionResult> transaction(String path, List<CuratorOp> ops) {
+        return execute("transaction", path, 0, "执行事务失败", () -> client.transaction().forOperations(ops));
+    }
+
+    /**
+     * 并行读取多个节点的原始数据，不解压
+     *
+     * @param paths 节点名称
+     * @return 与paths顺序一致的数据，节点不存在时对应位置为null
+     */
+    public List<byte[]> getDataAll(List<String> paths) {
+        String first = paths.isEmpty() ? null : paths.get(0);
+        return execute("getDataAll", first, 0, "获取指定节点的数据失败", () -> {
+            List<CompletableFuture<byte[]>> reads = new ArrayList<>(paths.size());
+            for (String path : paths) {
+                reads.add(BackgroundReads.getData(client, path).exceptionally(e -> {
+                    if (e instanceof KeeperException.NoNodeException) {
+                        return null;
+                    }
+                    throw new CompletionException(e);
+                }));
+            }
+            List<byte[]> result = new ArrayList<>(paths.size());
+            for (CompletableFuture<byte[]> read : reads) {
+                result.add(read.get());
+            }
+            return result;
+        });
     }
 
     /**
@@ -227,7 +848,9 @@ public class CuratorClientV510 {
      * @return 排他锁
      */
     public InterProcessSemaphoreMutex getSemaphoreMutexLock(String path) {
-        return new InterProcessSemaphoreMutex(client, path);
+        InterProcessSemaphoreMutex lock = new InterProcessSemaphoreMutex(client, path);
+        inventory.onLockCreated(lock, path);
+        return lock;
     }
 
     /**
@@ -237,7 +860,9 @@ public class CuratorClientV510 {
      * @return 可重入排他锁
      */
     public InterProcessMutex getMutexLock(String path) {
-        return new InterProcessMutex(client, path);
+        InterProcessMutex lock = new InterProcessMutex(client, path);
+        inventory.onLockCreated(lock, path);
+        return lock;
     }
 
     /**
@@ -247,7 +872,9 @@ public class CuratorClientV510 {
      * @return 锁容器
      */
     public InterProcessMultiLock getMultiMutexLock(List<String> paths) {
-        return new InterProcessMultiLock(client, paths);
+        InterProcessMultiLock lock = new InterProcessMultiLock(client, paths);
+        inventory.onLockCreated(lock, String.join(",", paths));
+        return lock;
     }
 
     /**
@@ -266,10 +893,17 @@ public class CuratorClientV510 {
      * @param lock 分布式锁对象
      */
     public void acquire(InterProcessLock lock) {
+        Object event = FlightEvents.beginLockWait();
+        inventory.onAcquiring(lock);
+        boolean acquired = false;
         try {
             lock.acquire();
+            acquired = true;
         } catch (Exception e) {
             throw new CuratorClientException("加锁失败", e);
+        } finally {
+            inventory.onAcquired(lock, acquired);
+            FlightEvents.endLockWait(event, inventory.lockPath(lock), lock.getClass().getSimpleName(), acquired);
         }
     }
 
@@ -281,10 +915,16 @@ public class CuratorClientV510 {
      * @param unit 时间单位
      */
     public void acquire(InterProcessLock lock, long time, TimeUnit unit) {
+        Object event = FlightEvents.beginLockWait();
+        inventory.onAcquiring(lock);
+        boolean acquired = false;
         try {
-            lock.acquire(time, unit);
+            acquired = lock.acquire(time, unit);
         } catch (Exception e) {
             throw new CuratorClientException("加锁失败", e);
+        } finally {
+            inventory.onAcquired(lock, acquired);
+            FlightEvents.endLockWait(event, inventory.lockPath(lock), lock.getClass().getSimpleName(), acquired);
         }
     }
 
@@ -298,6 +938,8 @@ public class CuratorClientV510 {
             lock.release();
         } catch (Exception e) {
             throw new CuratorClientException("释放锁失败", e);
+        } finally {
+            inventory.onReleased(lock);
         }
     }
 
@@ -311,6 +953,189 @@ public class CuratorClientV510 {
         return lock.isAcquiredInThisProcess();
     }
 
+    /**
+     * 获取号段式ID生成器，同一个计数节点共享一个实例
+     * 号段大小在100~100000之间自适应，期望每个号段使用1秒
+     *
+     * @param path 计数节点
+     * @return ID生成器
+     */
+    public DistributedIdGenerator getIdGenerator(String path) {
+        return getIdGenerator(path, 100, 100000, 1000);
+    }
+
+    /**
+     * 获取号段式ID生成器，同一个计数节点共享一个实例
+     *
+     * @param path 计数节点
+     * @param minBlockSize 最小号段大小
+     * @param maxBlockSize 最大号段大小
+     * @param targetBlockMillis 期望一个号段的使用时长
+     * @return ID生成器
+     */
+    public DistributedIdGenerator getIdGenerator(String path, int minBlockSize, int maxBlockSize, long targetBlockMillis) {
+        return idGenerators.computeIfAbsent(path, p -> new DistributedIdGenerator(this, p, minBlockSize, maxBlockSize,
+                targetBlockMillis, getScheduler()));
+    }
+
+    /**
+     * 获取本地聚合的分布式计数器，同一个计数节点共享一个实例，每秒合并一次
+     *
+     * @param path 计数节点
+     * @return 计数器
+     */
+    public DistributedCounter getCounter(String path) {
+        return getCounter(path, 1000);
+    }
+
+    /**
+     * 获取本地聚合的分布式计数器，同一个计数节点共享一个实例
+     *
+     * @param path 计数节点
+     * @param flushIntervalMs 合并间隔
+     * @return 计数器
+     */
+    public DistributedCounter getCounter(String path, long flushIntervalMs) {
+        return counters.computeIfAbsent(path, p -> new DistributedCounter(this, p, flushIntervalMs, getScheduler()));
+    }
+
+    /**
+     * 获取集群限流器，同一个协调节点共享一个实例
+     * 保底配额为全局配额的20%，本地允许1秒的突发量，每秒重新分配一次
+     *
+     * @param path 协调节点
+     * @param globalPermitsPerSecond 协调节点不存在时写入的全局每秒许可数
+     * @return 限流器
+     */
+    public DistributedRateLimiter getRateLimiter(String path, long globalPermitsPerSecond) {
+        return getRateLimiter(path, globalPermitsPerSecond, 0.2, 1, 1000);
+    }
+
+    /**
+     * 获取集群限流器，同一个协调节点共享一个实例
+     *
+     * @param path 协调节点
+     * @param globalPermitsPerSecond 协调节点不存在时写入的全局每秒许可数
+     * @param minShareRatio 平均分配给所有实例的保底比例
+     * @param burstSeconds 本地允许的突发量，以秒为单位
+     * @param rebalanceIntervalMs 重新分配配额的间隔
+     * @return 限流器
+     */
+    public DistributedRateLimiter getRateLimiter(String path, long globalPermitsPerSecond, double minShareRatio,
+                                                 double burstSeconds, long rebalanceIntervalMs) {
+        DistributedRateLimiter rateLimiter = rateLimiters.get(path);
+        if (rateLimiter!=null) {
+            return rateLimiter;
+        }
+        // 创建时需要访问zookeeper，不能放在computeIfAbsent中阻塞同一个map的其他操作
+        DistributedRateLimiter created = new DistributedRateLimiter(this, path, globalPermitsPerSecond,
+                minShareRatio, burstSeconds, rebalanceIntervalMs, getScheduler());
+        rateLimiter = rateLimiters.putIfAbsent(path, created);
+        if (rateLimiter!=null) {
+            created.close();
+            return rateLimiter;
+        }
+        return created;
+    }
+
+    /**
+     * 获取分区分配器，同一个分配根节点共享一个实例
+     * 每个成员在哈希环上放置160个虚拟节点
+     *
+     * @param path 分配根节点
+     * @param partitions 分区数
+     * @return 分区分配器
+     */
+    public PartitionAssigner getPartitionAssigner(String path, int partitions) {
+        return getPartitionAssigner(path, partitions, 160);
+    }
+
+    /**
+     * 获取分区分配器，同一个分配根节点共享一个实例
+     *
+     * @param path 分配根节点
+     * @param partitions 分区数
+     * @param virtualNodes 每个成员的虚拟节点数
+     * @return 分区分配器
+     */
+    public PartitionAssigner getPartitionAssigner(String path, int partitions, int virtualNodes) {
+        return partitionAssigners.computeIfAbsent(path, p -> new PartitionAssigner(this, p, partitions, virtualNodes));
+    }
+
+    /**
+     * 获取分布式工作队列，同一个队列根节点共享一个实例
+     * 条目分散在16个桶中，每个事务最多100个条目
+     *
+     * @param path 队列根节点
+     * @return 工作队列
+     */
+    public DistributedWorkQueue getWorkQueue(String path) {
+        return getWorkQueue(path, 16, 100);
+    }
+
+    /**
+     * 获取分布式工作队列，同一个队列根节点共享一个实例
+     *
+     * @param path 队列根节点
+     * @param buckets 桶数量
+     * @param batchSize 单个事务中的最大条目数
+     * @return 工作队列
+     */
+    public DistributedWorkQueue getWorkQueue(String path, int buckets, int batchSize) {
+        return workQueues.computeIfAbsent(path, p -> new DistributedWorkQueue(this, p, buckets, batchSize));
+    }
+
+    /**
+     * 获取服务注册与发现，同一个注册根节点共享一个实例
+     *
+     * @param basePath 注册根节点
+     * @return 服务注册与发现
+     */
+    public ServiceRegistry getServiceRegistry(String basePath) {
+        return serviceRegistries.computeIfAbsent(basePath, p -> new ServiceRegistry(client, p));
+    }
+
+    /**
+     * 客户端内部组件共用的后台线程池，随客户端关闭
+     *
+     * @return 线程池
+     */
+    public synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler==null) {
+            scheduler = Executors.newScheduledThreadPool(2, r -> {
+                Thread thread = new Thread(r, "curator-client-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * 获取本地复用租约的信号量，同一个节点共享一个实例
+     * 本进程最多保留4个空闲租约，空闲10秒后归还
+     *
+     * @param path 信号量节点
+     * @param maxLeases 全局最大租约数
+     * @return 信号量
+     */
+    public PooledSemaphore getPooledSemaphore(String path, int maxLeases) {
+        return getPooledSemaphore(path, maxLeases, 4, 10000);
+    }
+
+    /**
+     * 获取本地复用租约的信号量，同一个节点共享一个实例
+     *
+     * @param path 信号量节点
+     * @param maxLeases 全局最大租约数
+     * @param maxIdle 本进程空闲池的最大租约数
+     * @param idleTimeoutMs 空闲超过该时间的租约归还给其他进程
+     * @return 信号量
+     */
+    public PooledSemaphore getPooledSemaphore(String path, int maxLeases, int maxIdle, long idleTimeoutMs) {
+        return pooledSemaphores.computeIfAbsent(path, p -> new PooledSemaphore(client, p, maxLeases, maxIdle, idleTimeoutMs, getScheduler()));
+    }
+
     /**
      * 获取读写锁
      *
@@ -318,7 +1143,10 @@ public class CuratorClientV510 {
      * @return 读写锁
      */
     public InterProcessReadWriteLock getReadWriteLock(String path) {
-        return new InterProcessReadWriteLock(client, path);
+        InterProcessReadWriteLock lock = new InterProcessReadWriteLock(client, path);
+        inventory.onLockCreated(lock.readLock(), path + " (read)");
+        inventory.onLockCreated(lock.writeLock(), path + " (write)");
+        return lock;
     }
 
 //    在5.1.0版本中`NodeCache`和`PathChildrenCache`已经被弃用。使用新的`org.apache.curator.framework.recipes.cache.CuratorCacheListener`和
@@ -343,6 +1171,8 @@ public class CuratorClientV510 {
 
     /**
      * 监听数据节点的变化情况
+     * 开启压缩时监听器收到的是解压后的数据；返回的CuratorCache中保存的仍是原始数据，读取时用decompress(ChildData)解压。
+     * 路径已预热时返回共享缓存的句柄，close()只移除本次注册的监听器；已有节点在缓存初始化完成后补发给监听器
      *
      * @param path 节点名称
      * @param listener 监听器
@@ -350,8 +1180,13 @@ public class CuratorClientV510 {
      * @return 监听节点的CuratorCache实例
      */
     public CuratorCache watch(String path, CuratorCacheListener listener, Executor pool) {
+        WarmedCache warmed = warmedCaches.get(path);
+        if (warmed!=null) {
+            return share(path, warmed, listener, pool);
+        }
         CuratorCache cache = CuratorCache.build(client, path);
-        cache.listenable().addListener(listener, pool);
+        ClientInventory.InstrumentedListener instrumented = inventory.instrument(path, cache, listener, pool, this::decompress);
+        cache.listenable().addListener(instrumented, instrumented.executor());
         try {
             cache.start();
         } catch (Exception e) {
@@ -362,14 +1197,20 @@ public class CuratorClientV510 {
 
     /**
      * 监听数据节点的变化情况
+     * 开启压缩时监听器收到的是解压后的数据；返回的CuratorCache中保存的仍是原始数据，读取时用decompress(ChildData)解压。
+     * 路径已预热时返回共享缓存的句柄，close()只移除本次注册的监听器；已有节点在缓存初始化完成后补发给监听器
      *
      * @param path 节点名称
      * @param listener 监听器
      * @return 监听节点的CuratorCache实例
      */
     public CuratorCache watch(String path, CuratorCacheListener listener) {
+        WarmedCache warmed = warmedCaches.get(path);
+        if (warmed!=null) {
+            return share(path, warmed, listener, null);
+        }
         CuratorCache cache = CuratorCache.build(client, path);
-        cache.listenable().addListener(listener);
+        cache.listenable().addListener(inventory.instrument(path, cache, listener, null, this::decompress));
         try {
             cache.start();
         } catch (Exception e) {
@@ -378,8 +1219,40 @@ public class CuratorClientV510 {
         return cache;
     }
 
+    /**
+     * 预热节点缓存
+     * 预热后的缓存在客户端关闭前一直保持，watch()相同路径时直接复用，不再重新拉取整棵子树
+     *
+     * @param path 节点名称
+     * @return 缓存初始化完成时结束
+     */
+    public CompletableFuture<CuratorCache> warmUpCache(String path) {
+        WarmedCache warmed = new WarmedCache(CuratorCache.build(client, path));
+        WarmedCache existing = warmedCaches.putIfAbsent(path, warmed);
+        if (existing!=null) {
+            return existing.initialized;
+        }
+        CuratorCache cache = warmed.cache;
+        inventory.onCacheStarted(path, cache);
+        cache.listenable().addListener(CuratorCacheListener.builder().forInitialized(() -> warmed.initialized.complete(cache)).build());
+        try {
+            cache.start();
+        } catch (Exception e) {
+            warmedCaches.remove(path, warmed);
+            warmed.initialized.completeExceptionally(new CuratorClientException("监听节点出错", e));
+        }
+        return warmed.initialized;
+    }
+
+    private CuratorCache share(String path, WarmedCache warmed, CuratorCacheListener listener, Executor pool) {
+        ClientInventory.InstrumentedListener instrumented = inventory.instrument(path, warmed.cache, listener, pool, this::decompress);
+        return new SharedCacheHandle(warmed.cache, warmed.initialized, instrumented, instrumented.executor(),
+                () -> inventory.remove(warmed.cache, listener));
+    }
+
     /**
      * 取消监听节点
+     * 共享缓存的句柄等同于调用其close()
      *
      * @param cache 监听节点的CuratorCache实例
      * @param listener 监听器
@@ -388,7 +1261,23 @@ public class CuratorClientV510 {
         if (cache==null) {
             throw new CuratorClientException("TreeCache实例不能为null");
         }
-        cache.listenable().removeListener(listener);
+        if (cache instanceof SharedCacheHandle) {
+            cache.close();
+            return;
+        }
+        cache.listenable().removeListener(inventory.remove(cache, listener));
+    }
+
+    /**
+     * 预热的缓存及其初始化结果
+     */
+    private static final class WarmedCache {
+        final CuratorCache cache;
+        final CompletableFuture<CuratorCache> initialized = new CompletableFuture<>();
+
+        WarmedCache(CuratorCache cache) {
+            this.cache = cache;
+        }
     }
 
 }
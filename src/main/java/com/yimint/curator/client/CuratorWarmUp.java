@@ -0,0 +1,108 @@
+package com.yimint.curator.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.imps.CuratorFrameworkState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热
+ * 在后台线程中等待连接建立，然后并行启动声明的节点缓存，全部初始化完成后才视为就绪。
+ * 预热失败（连接超时或缓存启动失败）时按指数退避重试，直到成功或客户端关闭，就绪状态不会永久停留在未就绪。
+ * 预热不阻塞应用启动，就绪状态通过{@link #isReady()}或{@link #getFuture()}获取。
+ */
+@Slf4j
+public class CuratorWarmUp {
+
+    private static final long MIN_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 30000;
+
+    private final CuratorClientV510 curatorClient;
+    private final List<String> cachePaths;
+    private final long timeoutMs;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private volatile Exception lastError;
+
+    /**
+     * @param curatorClient 客户端
+     * @param cachePaths    需要预先启动的CuratorCache路径，watch()会复用这些缓存
+     * @param timeoutMs     每次等待连接建立的超时时间
+     */
+    public CuratorWarmUp(CuratorClientV510 curatorClient, List<String> cachePaths, long timeoutMs) {
+        this.curatorClient = curatorClient;
+        this.cachePaths = cachePaths==null ? new ArrayList<>() : cachePaths;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public void start() {
+        Thread thread = new Thread(this::warmUp, "curator-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+        long retryDelay = MIN_RETRY_DELAY_MS;
+        while (curatorClient.getClient().getState()!=CuratorFrameworkState.STOPPED) {
+            try {
+                warmUpOnce();
+                log.info("curator warm up finished in {}ms, caches: {}", System.currentTimeMillis() - start, cachePaths.size());
+                lastError = null;
+                future.complete(null);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return;
+            } catch (Exception e) {
+                lastError = e;
+                log.error("curator warm up failed, retry in {}ms", retryDelay, e);
+            }
+            try {
+                Thread.sleep(retryDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return;
+            }
+            retryDelay = Math.min(MAX_RETRY_DELAY_MS, retryDelay * 2);
+        }
+    }
+
+    private void warmUpOnce() throws Exception {
+        if (!curatorClient.getClient().blockUntilConnected((int) timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("连接zookeeper超时：" + timeoutMs + "ms");
+        }
+        List<CompletableFuture<?>> futures = new ArrayList<>(cachePaths.size());
+        for (String cachePath : cachePaths) {
+            futures.add(curatorClient.warmUpCache(cachePath));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+    }
+
+    /**
+     * 预热是否已成功完成
+     *
+     * @return true 已就绪
+     */
+    public boolean isReady() {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * 最近一次预热失败的原因，成功或尚未失败时为null
+     *
+     * @return 失败原因
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    public CompletableFuture<Void> getFuture() {
+        return future;
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.yimint.curator.client;
+
+import com.yimint.curator.exception.CuratorClientException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用截止时间
+ * 通过{@link #call(Callable)}/{@link #run(Runnable)}绑定到当前线程后，其中所有CuratorClientV510的操作都会共享同一个截止时间：
+ * 已过期的操作直接失败，重试只在剩余时间足够时进行，读写操作以后台方式发出，最多等待到截止时间。
+ * 嵌套绑定时取更早的截止时间。
+ <pre>
+ Deadline.after(200, TimeUnit.MILLISECONDS).run(() -> {
+     String data = curatorClient.getNodeData("/config");
+     curatorClient.setNodeData("/status", data);
+ });
+ </pre>
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 创建一个从现在开始计时的截止时间
+     *
+     * @param timeout 超时时间
+     * @param unit 时间单位
+     * @return 截止时间
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * 当前线程绑定的截止时间
+     *
+     * @return 截止时间，未绑定时为null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 剩余时间
+     *
+     * @param unit 时间单位
+     * @return 剩余时间，已过期时返回0
+     */
+    public long remaining(TimeUnit unit) {
+        long remaining = deadlineNanos - System.nanoTime();
+        return remaining<=0 ? 0 : unit.convert(remaining, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime()<=0;
+    }
+
+    /**
+     * 在当前截止时间内执行操作
+     *
+     * @param callable 操作
+     * @return 操作结果
+     */
+    public <T> T call(Callable<T> callable) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(previous!=null && previous.deadlineNanos - deadlineNanos<0 ? previous : this);
+        try {
+            return callable.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CuratorClientException(e);
+        } finally {
+            if (previous==null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 在当前截止时间内执行操作
+     *
+     * @param runnable 操作
+     */
+    public void run(Runnable runnable) {
+        call(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.yimint.curator.client;
+
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 进程内的单机zookeeper，用于测试和本地开发
+ * 数据目录在临时目录下，关闭时删除；关闭事务日志的fsync，写入只受内存和页缓存限制。
+ * zookeeper 3.6只能通过系统属性zookeeper.forceSync关闭fsync，事务日志在创建时读取该属性，
+ * 因此只在创建服务端期间临时设置，创建后立即恢复，不影响同一进程中的其他zookeeper服务端。
+ * 与真实集群使用相同的服务端实现，节点、版本、watch、multi-op和锁的语义完全一致。
+ */
+@Slf4j
+public class EmbeddedZooKeeperServer implements Closeable {
+
+    private static final String FORCE_SYNC = "zookeeper.forceSync";
+
+    private final File dataDir;
+    private final ZooKeeperServer server;
+    private final ServerCnxnFactory factory;
+
+    /**
+     * @param port           监听端口，0表示随机端口
+     * @param tickTimeMs     tickTime
+     * @param maxClientCnxns 单个ip的最大连接数，0表示不限制
+     */
+    public EmbeddedZooKeeperServer(int port, int tickTimeMs, int maxClientCnxns) {
+        try {
+            this.dataDir = Files.createTempDirectory("curator-embedded-").toFile();
+            this.server = createServer(dataDir, tickTimeMs);
+            this.factory = ServerCnxnFactory.createFactory(new InetSocketAddress("127.0.0.1", port), maxClientCnxns);
+            factory.startup(server);
+        } catch (IOException e) {
+            throw new CuratorClientException("启动内嵌zookeeper出错", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CuratorClientException("启动内嵌zookeeper被中断", e);
+        }
+        log.info("embedded zookeeper started at {}, dataDir: {}", getConnectString(), dataDir);
+    }
+
+    /**
+     * 创建服务端，已显式配置zookeeper.forceSync时保留配置
+     */
+    private static ZooKeeperServer createServer(File dataDir, int tickTimeMs) throws IOException {
+        synchronized (EmbeddedZooKeeperServer.class) {
+            if (System.getProperty(FORCE_SYNC)!=null) {
+                return new ZooKeeperServer(dataDir, dataDir, tickTimeMs);
+            }
+            System.setProperty(FORCE_SYNC, "no");
+            try {
+                return new ZooKeeperServer(dataDir, dataDir, tickTimeMs);
+            } finally {
+                System.clearProperty(FORCE_SYNC);
+            }
+        }
+    }
+
+    public String getConnectString() {
+        return "127.0.0.1:" + factory.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        factory.shutdown();
+        server.shutdown();
+        try (Stream<Path> paths = Files.walk(dataDir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            log.warn("delete embedded zookeeper data failed, dataDir: {}", dataDir, e);
+        }
+    }
+
+}
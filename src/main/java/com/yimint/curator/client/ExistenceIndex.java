@@ -0,0 +1,210 @@
+package com.yimint.curator.client;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 节点存在性索引
+ * 为配置的路径前缀各启动一个CuratorCache，前缀下节点是否存在直接从内存中回答，存在和不存在的结果都不需要访问zookeeper。
+ * 本客户端的创建、删除在缓存事件到达前先记录在覆盖表中（读己之写），记录带有对应节点的czxid：
+ * 创建记录为新建节点的czxid，删除记录为被删除节点的czxid。缓存中的节点状态或收到的事件不早于该czxid时覆盖记录失效，
+ * 早于该czxid的迟到事件（例如上一个同名节点的删除事件）不会清除记录。
+ * 缓存可能收不到事件（例如节点被创建后很快又被其他客户端删除），覆盖记录最多保留OVERLAY_TTL_MS，之后以缓存为准。
+ * 连接挂起、丢失或缓存尚未初始化时返回UNKNOWN。
+ */
+public class ExistenceIndex implements Closeable {
+
+    /**
+     * 覆盖记录的有效期，远大于缓存事件的正常延迟
+     */
+    private static final long OVERLAY_TTL_MS = 10000;
+
+    /**
+     * 节点已存在而不是由本客户端创建时，创建记录没有czxid，该路径的任何事件都使记录失效
+     */
+    private static final long UNKNOWN_ZXID = 0;
+
+    private final CuratorFramework client;
+    private final List<String> prefixes;
+    private final List<IndexedCache> caches = new ArrayList<>();
+    private final Map<String, Written> overlay = new ConcurrentHashMap<>();
+    private volatile boolean connected;
+
+    /**
+     * @param client   会话
+     * @param prefixes 建立索引的路径前缀
+     */
+    public ExistenceIndex(CuratorFramework client, List<String> prefixes) {
+        this.client = client;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * 会话启动后启动缓存
+     */
+    public void start() {
+        connected = client.getZookeeperClient().isConnected();
+        client.getConnectionStateListenable().addListener((c, state) -> connected = state.isConnected());
+        for (String prefix : prefixes) {
+            IndexedCache indexed = new IndexedCache(prefix, CuratorCache.build(client, prefix));
+            indexed.cache.listenable().addListener(CuratorCacheListener.builder()
+                    .forAll((type, oldData, data) -> invalidate(type, data!=null ? data : oldData))
+                    .forInitialized(() -> indexed.initialized = true)
+                    .build());
+            indexed.cache.start();
+            caches.add(indexed);
+        }
+    }
+
+    /**
+     * 从索引中查询节点是否存在
+     *
+     * @param path 节点名称
+     * @return 是否存在，路径不在索引范围内时为null
+     */
+    public NodeExistence lookup(String path) {
+        IndexedCache indexed = find(path);
+        if (indexed==null) {
+            return null;
+        }
+        if (!connected || !indexed.initialized) {
+            return NodeExistence.UNKNOWN;
+        }
+        Optional<ChildData> cached = indexed.cache.get(path);
+        Written written = overlay.get(path);
+        if (written!=null) {
+            if (System.currentTimeMillis()<written.expiresAt && !written.reachedBy(cached.orElse(null))) {
+                return written.exists ? NodeExistence.EXISTS : NodeExistence.ABSENT;
+            }
+            overlay.remove(path, written);
+        }
+        return cached.isPresent() ? NodeExistence.EXISTS : NodeExistence.ABSENT;
+    }
+
+    /**
+     * 本客户端创建了节点
+     *
+     * @param path 节点名称
+     * @param stat 新建节点的状态，节点已存在而未创建时为null
+     */
+    public void onCreated(String path, Stat stat) {
+        if (find(path)!=null) {
+            // 不比较缓存当前的状态，缓存已经收到创建事件时由lookup()发现并清除记录
+            overlay.put(path, new Written(true, stat!=null ? stat.getCzxid() : UNKNOWN_ZXID));
+        }
+    }
+
+    /**
+     * 本客户端删除了节点
+     *
+     * @param path      节点名称
+     * @param recursive 是否同时删除了子节点
+     */
+    public void onDeleted(String path, boolean recursive) {
+        IndexedCache indexed = find(path);
+        if (indexed==null) {
+            return;
+        }
+        if (recursive) {
+            String prefix = path + "/";
+            indexed.cache.stream().filter(data -> data.getPath().startsWith(prefix))
+                    .forEach(data -> overlay.put(data.getPath(), new Written(false, data.getStat().getCzxid())));
+        }
+        Optional<ChildData> cached = indexed.cache.get(path);
+        if (cached.isPresent()) {
+            overlay.put(path, new Written(false, cached.get().getStat().getCzxid()));
+        } else {
+            // 缓存中已经没有该节点，与删除结果一致
+            overlay.remove(path);
+        }
+    }
+
+    private void invalidate(CuratorCacheListener.Type type, ChildData data) {
+        if (data==null) {
+            return;
+        }
+        Written written = overlay.get(data.getPath());
+        if (written!=null && written.supersededBy(data, type==CuratorCacheListener.Type.NODE_DELETED)) {
+            overlay.remove(data.getPath(), written);
+        }
+    }
+
+    private IndexedCache find(String path) {
+        for (IndexedCache indexed : caches) {
+            if (path.equals(indexed.prefix) || path.startsWith(indexed.prefix + "/")) {
+                return indexed;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        caches.forEach(indexed -> indexed.cache.close());
+    }
+
+    private static final class Written {
+        final boolean exists;
+        /**
+         * 创建记录为新建节点的czxid，删除记录为被删除节点的czxid
+         */
+        final long zxid;
+        final long expiresAt = System.currentTimeMillis() + OVERLAY_TTL_MS;
+
+        Written(boolean exists, long zxid) {
+            this.exists = exists;
+            this.zxid = zxid;
+        }
+
+        /**
+         * 缓存中节点的当前状态是否已经包含了这次写入
+         *
+         * @param cached 缓存中的节点，不存在时为null
+         */
+        boolean reachedBy(ChildData cached) {
+            if (cached==null) {
+                // 删除：缓存已经移除节点；创建：缓存尚未收到创建事件，或节点已被删除，无法区分时保留到过期
+                return !exists;
+            }
+            return supersededBy(cached, false);
+        }
+
+        /**
+         * 缓存事件是否不早于这次写入
+         *
+         * @param data    事件中的节点
+         * @param deleted 是否为删除事件
+         */
+        boolean supersededBy(ChildData data, boolean deleted) {
+            long czxid = data.getStat().getCzxid();
+            if (exists) {
+                // 本次创建的节点或之后重新创建的节点的任何事件
+                return czxid>=zxid;
+            }
+            // 被删除节点自身的删除事件，或之后重新创建的节点的事件；被删除节点删除前的修改事件不算
+            return czxid>zxid || (deleted && czxid==zxid);
+        }
+    }
+
+    private static final class IndexedCache {
+        final String prefix;
+        final CuratorCache cache;
+        volatile boolean initialized;
+
+        IndexedCache(String prefix, CuratorCache cache) {
+            this.prefix = prefix;
+            this.cache = cache;
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.yimint.curator.client;
+
+/**
+ * 节点是否存在
+ */
+public enum NodeExistence {
+    /**
+     * 节点存在
+     */
+    EXISTS,
+    /**
+     * 节点不存在
+     */
+    ABSENT,
+    /**
+     * 连接中断或请求失败，无法判断
+     */
+    UNKNOWN
+}
@@ -0,0 +1,149 @@
+package com.yimint.curator.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.zookeeper.KeeperException;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 读请求对冲(hedging)
+ * 主会话发出读请求后，如果在最近读延迟的指定分位数内没有返回，就通过第二个会话发出相同的读请求，取先返回的结果。
+ * 分位数阈值根据最近的读延迟周期性重新计算，对冲请求只占尾部少量流量。
+ * 第二个会话与主会话之间没有顺序保证，主会话刚写入的数据可能还没有同步到第二个会话所连接的服务端，
+ * 因此对冲请求先在第二个会话上sync()再读取，保证能读到调用方此前已经完成的写入（read-your-writes），代价是对冲请求多一次往返。
+ * 每个返回的请求都按自己的发出时间记录延迟，包括被对冲请求抢先的慢请求和节点不存在等确定性错误，连接类错误不计入。
+ */
+@Slf4j
+public class ReadHedger implements Closeable {
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int RECOMPUTE_INTERVAL = 128;
+
+    private final CuratorFramework primary;
+    private final CuratorFramework secondary;
+    private final double percentile;
+    private final long minDelayMicros;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_SIZE);
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong hedgedCount = new AtomicLong();
+    private volatile long thresholdMicros;
+
+    /**
+     * @param primary    主会话
+     * @param secondary  对冲使用的第二个会话，由ReadHedger负责启动和关闭
+     * @param percentile 触发对冲的延迟分位数，例如0.95
+     * @param minDelayMs 最小对冲延迟，避免延迟样本不足时过早对冲
+     */
+    public ReadHedger(CuratorFramework primary, CuratorFramework secondary, double percentile, long minDelayMs) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.percentile = percentile;
+        this.minDelayMicros = TimeUnit.MILLISECONDS.toMicros(minDelayMs);
+        this.thresholdMicros = minDelayMicros;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "curator-read-hedger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        secondary.start();
+    }
+
+    /**
+     * 读取节点数据和状态，必要时发出对冲请求
+     *
+     * @param path 节点名称
+     * @return 节点数据和状态
+     */
+    public CompletableFuture<ChildData> read(String path) {
+        CompletableFuture<ChildData> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        send(primary, path, result, outstanding);
+        ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            hedgedCount.incrementAndGet();
+            BackgroundReads.sync(secondary, path).whenComplete((ignored, e) -> {
+                if (e!=null) {
+                    onComplete(result, outstanding, null, e);
+                } else if (!result.isDone()) {
+                    send(secondary, path, result, outstanding);
+                } else {
+                    outstanding.decrementAndGet();
+                }
+            });
+        }, thresholdMicros, TimeUnit.MICROSECONDS);
+        result.whenComplete((data, e) -> hedge.cancel(false));
+        return result;
+    }
+
+    private void send(CuratorFramework framework, String path, CompletableFuture<ChildData> result, AtomicInteger outstanding) {
+        long start = System.nanoTime();
+        BackgroundReads.getChildData(framework, path).whenComplete((data, e) -> {
+            if (e==null || !isConnectionFailure(e)) {
+                record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            }
+            onComplete(result, outstanding, data, e);
+        });
+    }
+
+    private void onComplete(CompletableFuture<ChildData> result, AtomicInteger outstanding, ChildData data, Throwable e) {
+        int remaining = outstanding.decrementAndGet();
+        if (e==null) {
+            result.complete(data);
+        } else if (remaining<=0 || !isConnectionFailure(e)) {
+            // 节点不存在等确定性错误直接返回，连接类错误等待另一个请求
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void record(long latencyMicros) {
+        long count = sampleCount.getAndIncrement();
+        samples.set((int) (count % SAMPLE_SIZE), latencyMicros);
+        if (count % RECOMPUTE_INTERVAL==RECOMPUTE_INTERVAL - 1) {
+            long[] copy = new long[(int) Math.min(count + 1, SAMPLE_SIZE)];
+            for (int i = 0; i<copy.length; i++) {
+                copy[i] = samples.get(i);
+            }
+            Arrays.sort(copy);
+            long value = copy[Math.min(copy.length - 1, (int) (copy.length * percentile))];
+            thresholdMicros = Math.max(minDelayMicros, value);
+        }
+    }
+
+    public long getHedgedCount() {
+        return hedgedCount.get();
+    }
+
+    public long getThresholdMicros() {
+        return thresholdMicros;
+    }
+
+    private static boolean isConnectionFailure(Throwable e) {
+        return e instanceof KeeperException.ConnectionLossException || e instanceof KeeperException.SessionExpiredException
+                || e instanceof KeeperException.OperationTimeoutException;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        secondary.close();
+    }
+
+}
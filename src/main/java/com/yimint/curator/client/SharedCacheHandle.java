@@ -0,0 +1,159 @@
+package com.yimint.curator.client;
+
+import org.apache.curator.framework.listen.Listenable;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * watch()复用已预热的缓存时返回给调用方的句柄
+ * close()只移除该调用方的监听器（包括通过listenable()添加的），不关闭共享的缓存；start()为空操作。
+ * 共享缓存初始化完成后才注册监听器，并在监听器的线程池中（未指定时在完成初始化的线程中）把缓存中已有的节点
+ * 作为NODE_CREATED事件补发，再调用initialized()。补发开始前到达的事件已经包含在补发的快照中，不再重复投递；
+ * 补发期间到达的事件等待补发完成后投递，监听器看到的顺序与单独启动一个缓存相同。
+ */
+final class SharedCacheHandle implements CuratorCache {
+
+    private final CuratorCache cache;
+    private final CuratorCacheListener listener;
+    private final Executor executor;
+    private final Runnable onClose;
+    private final Gate gate = new Gate();
+    private final Map<CuratorCacheListener, Boolean> added = new ConcurrentHashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param cache       共享的缓存
+     * @param initialized 共享缓存初始化完成时结束
+     * @param listener    调用方的监听器
+     * @param executor    监听器的线程池，为null时在缓存的事件线程中执行
+     * @param onClose     关闭句柄时的清理
+     */
+    SharedCacheHandle(CuratorCache cache, CompletableFuture<?> initialized, CuratorCacheListener listener, Executor executor,
+                      Runnable onClose) {
+        this.cache = cache;
+        this.listener = listener;
+        this.executor = executor;
+        this.onClose = onClose;
+        initialized.thenRun(this::register);
+    }
+
+    private void register() {
+        synchronized (gate) {
+            if (closed.get()) {
+                return;
+            }
+            if (executor==null) {
+                cache.listenable().addListener(gate);
+            } else {
+                cache.listenable().addListener(gate, executor);
+            }
+        }
+        if (executor==null) {
+            gate.replay();
+        } else {
+            executor.execute(gate::replay);
+        }
+    }
+
+    @Override
+    public void start() {
+        // 共享的缓存已经启动
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (gate) {
+            cache.listenable().removeListener(gate);
+        }
+        added.keySet().forEach(cache.listenable()::removeListener);
+        added.clear();
+        onClose.run();
+    }
+
+    @Override
+    public Listenable<CuratorCacheListener> listenable() {
+        return new Listenable<CuratorCacheListener>() {
+            @Override
+            public void addListener(CuratorCacheListener listener) {
+                added.put(listener, Boolean.TRUE);
+                cache.listenable().addListener(listener);
+            }
+
+            @Override
+            public void addListener(CuratorCacheListener listener, Executor executor) {
+                added.put(listener, Boolean.TRUE);
+                cache.listenable().addListener(listener, executor);
+            }
+
+            @Override
+            public void removeListener(CuratorCacheListener listener) {
+                added.remove(listener);
+                cache.listenable().removeListener(listener);
+            }
+        };
+    }
+
+    @Override
+    public Optional<ChildData> get(String path) {
+        return cache.get(path);
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public Stream<ChildData> stream() {
+        return cache.stream();
+    }
+
+    /**
+     * 在补发完成前拦截实时事件
+     */
+    private final class Gate implements CuratorCacheListener {
+
+        private volatile boolean replaying = true;
+
+        @Override
+        public void event(Type type, ChildData oldData, ChildData data) {
+            if (replaying) {
+                synchronized (this) {
+                    if (replaying) {
+                        // 缓存先更新数据再通知监听器，补发尚未开始，这次变化会包含在补发的快照中
+                        return;
+                    }
+                }
+            }
+            if (!closed.get()) {
+                listener.event(type, oldData, data);
+            }
+        }
+
+        @Override
+        public void initialized() {
+            // 注册时共享缓存已经初始化，由replay()通知
+        }
+
+        synchronized void replay() {
+            if (!closed.get()) {
+                cache.stream().forEach(data -> listener.event(Type.NODE_CREATED, null, data));
+                listener.initialized();
+            }
+            replaying = false;
+        }
+    }
+
+}
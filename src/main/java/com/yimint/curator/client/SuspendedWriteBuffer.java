@@ -0,0 +1,374 @@
+package com.yimint.curator.client;
+
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接挂起期间的写缓冲
+ * 连接处于SUSPENDED时，幂等写操作（设置数据、不存在时创建、删除）先进入有界缓冲区，
+ * 收到RECONNECTED后按批次以事务（multi-op）限速重放；收到LOST时按策略丢弃或保留到下次重连。
+ * 重放期间新到达的写操作继续排在缓冲区尾部，保证同一客户端的写入顺序不变。
+ * 每个缓冲的写操作返回一个CompletableFuture，重放成功时完成；LOST时被丢弃、重放失败或close()时异常完成。
+ * guaranteed删除在LOST时始终保留，重放时仍使用guaranteed()语义。
+ * 最新的连接状态与缓冲区在同一把锁下维护：只有最新状态为已连接时才结束缓冲；重放因连接异常中断时，
+ * 如果最新状态仍为已连接（重连事件在重放期间到达），稍后继续重放，而不是等待下一次状态变化。
+ */
+@Slf4j
+public class SuspendedWriteBuffer implements Closeable {
+
+    /**
+     * 连接丢失(LOST)时对缓冲数据的处理策略
+     */
+    public enum LostPolicy {
+        /**
+         * 丢弃缓冲的写操作并记录失败数，guaranteed删除除外
+         */
+        FAIL,
+        /**
+         * 保留缓冲的写操作，会话重建后继续重放
+         */
+        RETAIN
+    }
+
+    enum OpType {
+        CREATE, SET, DELETE
+    }
+
+    static final class BufferedWrite {
+        final OpType type;
+        final String path;
+        final byte[] data;
+        final CreateMode mode;
+        final boolean deleteChildren;
+        final boolean guaranteed;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        BufferedWrite(OpType type, String path, byte[] data, CreateMode mode, boolean deleteChildren, boolean guaranteed) {
+            this.type = type;
+            this.path = path;
+            this.data = data;
+            this.mode = mode;
+            this.deleteChildren = deleteChildren;
+            this.guaranteed = guaranteed;
+        }
+    }
+
+    private final CuratorFramework client;
+    private final int capacity;
+    private final int batchSize;
+    private final long batchIntervalMs;
+    private final LostPolicy lostPolicy;
+    private final Deque<BufferedWrite> pending = new ArrayDeque<>();
+    private final ExecutorService replayExecutor;
+    private final AtomicLong replayedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private static final long REPLAY_RETRY_DELAY_MS = 100;
+
+    private boolean buffering;
+    private boolean replaying;
+    private ConnectionState state;
+
+    public SuspendedWriteBuffer(CuratorFramework client, int capacity, int batchSize, long batchIntervalMs, LostPolicy lostPolicy) {
+        if (client==null) {
+            throw new CuratorClientException("client不能为null");
+        }
+        if (capacity<=0 || batchSize<=0) {
+            throw new CuratorClientException("capacity和batchSize必须大于0");
+        }
+        this.client = client;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.batchIntervalMs = batchIntervalMs;
+        this.lostPolicy = lostPolicy==null ? LostPolicy.FAIL : lostPolicy;
+        this.replayExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "curator-write-buffer-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 当前是否处于缓冲状态
+     *
+     * @return true 写操作应进入缓冲区
+     */
+    public synchronized boolean isBuffering() {
+        return buffering;
+    }
+
+    /**
+     * 缓冲中的写操作数量
+     *
+     * @return 数量
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * 缓冲一次不存在时创建的操作
+     *
+     * @param data 节点数据，为null时使用默认数据
+     * @return 重放结果，当前未处于缓冲状态时为null
+     */
+    public CompletableFuture<Void> offerCreate(CreateMode mode, String path, byte[] data) {
+        if (mode.isSequential()) {
+            // 顺序节点重放会产生新的节点，不是幂等操作
+            return null;
+        }
+        return offer(new BufferedWrite(OpType.CREATE, path, data, mode, false, false));
+    }
+
+    /**
+     * 缓冲一次设置数据的操作
+     *
+     * @return 重放结果，当前未处于缓冲状态时为null
+     */
+    public CompletableFuture<Void> offerSet(String path, byte[] data) {
+        return offer(new BufferedWrite(OpType.SET, path, data, null, false, false));
+    }
+
+    /**
+     * 缓冲一次删除操作
+     *
+     * @param guaranteed 是否保证删除：LOST时不丢弃，重放时使用guaranteed()
+     * @return 重放结果，当前未处于缓冲状态时为null
+     */
+    public CompletableFuture<Void> offerDelete(String path, boolean deleteChildren, boolean guaranteed) {
+        return offer(new BufferedWrite(OpType.DELETE, path, null, null, deleteChildren, guaranteed));
+    }
+
+    private synchronized CompletableFuture<Void> offer(BufferedWrite write) {
+        if (!buffering) {
+            return null;
+        }
+        if (pending.size()>=capacity) {
+            throw new CuratorClientException("写缓冲区已满，容量：" + capacity);
+        }
+        pending.addLast(write);
+        return write.result;
+    }
+
+    /**
+     * 连接状态变化回调，由CuratorClientV510的连接监听器调用
+     *
+     * @param state 新的连接状态
+     */
+    public void onStateChanged(ConnectionState state) {
+        if (state==ConnectionState.SUSPENDED) {
+            synchronized (this) {
+                this.state = state;
+                buffering = true;
+            }
+        } else if (state==ConnectionState.LOST) {
+            List<BufferedWrite> dropped = new ArrayList<>();
+            synchronized (this) {
+                this.state = state;
+                buffering = true;
+                if (lostPolicy==LostPolicy.FAIL) {
+                    pending.removeIf(write -> !write.guaranteed && dropped.add(write));
+                }
+            }
+            if (!dropped.isEmpty()) {
+                fail(dropped, "会话丢失，缓冲的写操作已丢弃");
+                log.error("lost session with zookeeper, {} buffered writes dropped", dropped.size());
+            }
+        } else if (state==ConnectionState.RECONNECTED || state==ConnectionState.CONNECTED) {
+            synchronized (this) {
+                this.state = state;
+                if (!buffering || replaying) {
+                    return;
+                }
+                replaying = true;
+            }
+            replayExecutor.execute(this::replay);
+        }
+    }
+
+    private void replay() {
+        try {
+            while (true) {
+                List<BufferedWrite> batch = new ArrayList<>(batchSize);
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        // 缓冲区已清空，仍然连接时后续写操作直接发往zookeeper；重放期间再次挂起则继续缓冲
+                        buffering = !isConnected();
+                        replaying = false;
+                        return;
+                    }
+                    while (batch.size()<batchSize && !pending.isEmpty()) {
+                        batch.add(pending.pollFirst());
+                    }
+                }
+                int completed = replayBatch(batch);
+                if (completed<batch.size()) {
+                    // 重放时连接再次断开，未完成的写操作放回队首；最新状态已连接时稍后继续，否则等待下一次重连
+                    synchronized (this) {
+                        for (int i = batch.size() - 1; i>=completed; i--) {
+                            pending.addFirst(batch.get(i));
+                        }
+                        if (!isConnected()) {
+                            replaying = false;
+                            return;
+                        }
+                    }
+                    Thread.sleep(Math.max(batchIntervalMs, REPLAY_RETRY_DELAY_MS));
+                    continue;
+                }
+                if (batchIntervalMs>0) {
+                    Thread.sleep(batchIntervalMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (this) {
+                replaying = false;
+            }
+        }
+    }
+
+    private boolean isConnected() {
+        return state!=null && state.isConnected();
+    }
+
+    /**
+     * 先以事务整体提交一批写操作，事务失败时逐条重放并容忍幂等冲突
+     *
+     * @return 已完成的写操作数量，小于批次大小说明连接异常，需要等待下一次重连
+     */
+    private int replayBatch(List<BufferedWrite> batch) {
+        if (canRunInTransaction(batch)) {
+            try {
+                List<CuratorOp> ops = new ArrayList<>(batch.size());
+                for (BufferedWrite write : batch) {
+                    ops.add(toOp(write));
+                }
+                client.transaction().forOperations(ops);
+                replayedCount.addAndGet(batch.size());
+                batch.forEach(write -> write.result.complete(null));
+                return batch.size();
+            } catch (KeeperException.ConnectionLossException | KeeperException.SessionExpiredException e) {
+                return 0;
+            } catch (Exception e) {
+                log.debug("replay buffered writes in transaction failed, fallback to single operations", e);
+            }
+        }
+        for (int i = 0; i<batch.size(); i++) {
+            BufferedWrite write = batch.get(i);
+            try {
+                replaySingle(write);
+                replayedCount.incrementAndGet();
+                write.result.complete(null);
+            } catch (KeeperException.ConnectionLossException | KeeperException.SessionExpiredException e) {
+                return i;
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                write.result.completeExceptionally(new CuratorClientException("重放缓冲的写操作失败：" + write.path, e));
+                log.error("replay buffered write failed, path: {}", write.path, e);
+            }
+        }
+        return batch.size();
+    }
+
+    private boolean canRunInTransaction(List<BufferedWrite> batch) {
+        for (BufferedWrite write : batch) {
+            if (write.type==OpType.DELETE && write.deleteChildren) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CuratorOp toOp(BufferedWrite write) throws Exception {
+        switch (write.type) {
+            case CREATE:
+                if (write.data==null) {
+                    return client.transactionOp().create().withMode(write.mode).forPath(write.path);
+                }
+                return client.transactionOp().create().withMode(write.mode).forPath(write.path, write.data);
+            case SET:
+                return client.transactionOp().setData().forPath(write.path, write.data);
+            default:
+                return client.transactionOp().delete().forPath(write.path);
+        }
+    }
+
+    private void replaySingle(BufferedWrite write) throws Exception {
+        switch (write.type) {
+            case CREATE:
+                try {
+                    if (write.data==null) {
+                        client.create().creatingParentsIfNeeded().withMode(write.mode).forPath(write.path);
+                    } else {
+                        client.create().creatingParentsIfNeeded().withMode(write.mode).forPath(write.path, write.data);
+                    }
+                } catch (KeeperException.NodeExistsException e) {
+                    // 不存在时创建，节点已存在视为成功
+                }
+                break;
+            case SET:
+                client.setData().forPath(write.path, write.data);
+                break;
+            default:
+                try {
+                    if (write.guaranteed && write.deleteChildren) {
+                        client.delete().guaranteed().deletingChildrenIfNeeded().forPath(write.path);
+                    } else if (write.guaranteed) {
+                        client.delete().guaranteed().forPath(write.path);
+                    } else if (write.deleteChildren) {
+                        client.delete().deletingChildrenIfNeeded().forPath(write.path);
+                    } else {
+                        client.delete().forPath(write.path);
+                    }
+                } catch (KeeperException.NoNodeException e) {
+                    // 节点已不存在视为删除成功
+                }
+                break;
+        }
+    }
+
+    private void fail(List<BufferedWrite> writes, String message) {
+        failedCount.addAndGet(writes.size());
+        for (BufferedWrite write : writes) {
+            write.result.completeExceptionally(new CuratorClientException(message + "：" + write.path));
+        }
+    }
+
+    @Override
+    public void close() {
+        replayExecutor.shutdownNow();
+        List<BufferedWrite> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(pending);
+            pending.clear();
+        }
+        if (!remaining.isEmpty()) {
+            fail(remaining, "客户端已关闭，缓冲的写操作已丢弃");
+            log.warn("curator client stopped, {} buffered writes dropped", remaining.size());
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.yimint.curator.codec;
+
+/**
+ * 原始字节，不做任何转换
+ */
+public class BytesNodeCodec implements NodeCodec {
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return type==byte[].class;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return (byte[]) value;
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+        return type.cast(data);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.yimint.curator.codec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 解码结果缓存
+ * 以节点路径为键、mzxid为版本，节点未被修改（mzxid不变）时直接返回上一次的解码结果。
+ * 缓存的对象会被多个调用方共享，应当视为只读。
+ */
+public class DecodedNodeCache {
+
+    private final Map<String, Decoded> entries;
+
+    public DecodedNodeCache(int maxSize) {
+        this.entries = new LinkedHashMap<String, Decoded>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Decoded> eldest) {
+                return size()>maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取解码结果
+     *
+     * @param path 节点名称
+     * @param mzxid 节点最后一次修改的事务id
+     * @param type 数据类型
+     * @return 解码结果，不存在或已过期时为null
+     */
+    public synchronized <T> T get(String path, long mzxid, Class<T> type) {
+        Decoded entry = entries.get(path);
+        if (entry==null || entry.mzxid!=mzxid || entry.type!=type) {
+            return null;
+        }
+        return type.cast(entry.value);
+    }
+
+    public synchronized void put(String path, long mzxid, Class<?> type, Object value) {
+        entries.put(path, new Decoded(mzxid, type, value));
+    }
+
+    public synchronized void invalidate(String path) {
+        entries.remove(path);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Decoded {
+        final long mzxid;
+        final Class<?> type;
+        final Object value;
+
+        Decoded(long mzxid, Class<?> type, Object value) {
+            this.mzxid = mzxid;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.yimint.curator.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yimint.curator.exception.CuratorClientException;
+
+import java.io.IOException;
+
+/**
+ * JSON，支持任意类型，作为最后的兜底编解码器
+ */
+public class JsonNodeCodec implements NodeCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JsonNodeCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return true;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new CuratorClientException("JSON编码失败", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+        try {
+            return objectMapper.readValue(data, type);
+        } catch (IOException e) {
+            throw new CuratorClientException("JSON解码失败", e);
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.yimint.curator.codec;
+
+/**
+ * 节点数据编解码SPI
+ * 实现类注册为Spring Bean后会排在内置编解码器之前，按注册顺序选择第一个supports()返回true的编解码器。
+ */
+public interface NodeCodec {
+
+    /**
+     * 是否支持该类型
+     *
+     * @param type 数据类型
+     * @return true 支持
+     */
+    boolean supports(Class<?> type);
+
+    /**
+     * 编码
+     *
+     * @param value 数据
+     * @return 节点数据
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 解码
+     *
+     * @param data 节点数据
+     * @param type 数据类型
+     * @return 数据
+     */
+    <T> T decode(byte[] data, Class<T> type);
+
+}
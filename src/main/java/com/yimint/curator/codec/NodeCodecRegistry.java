@@ -0,0 +1,50 @@
+package com.yimint.curator.codec;
+
+import com.yimint.curator.exception.CuratorClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编解码器注册表，每个类型只解析一次对应的编解码器
+ */
+public class NodeCodecRegistry {
+
+    private final List<NodeCodec> codecs;
+    private final Map<Class<?>, NodeCodec> resolved = new ConcurrentHashMap<>();
+
+    public NodeCodecRegistry(List<NodeCodec> codecs) {
+        this.codecs = new ArrayList<>(codecs);
+    }
+
+    /**
+     * 获取类型对应的编解码器
+     *
+     * @param type 数据类型
+     * @return 编解码器
+     */
+    public NodeCodec getCodec(Class<?> type) {
+        NodeCodec codec = resolved.get(type);
+        if (codec!=null) {
+            return codec;
+        }
+        for (NodeCodec candidate : codecs) {
+            if (candidate.supports(type)) {
+                resolved.put(type, candidate);
+                return candidate;
+            }
+        }
+        throw new CuratorClientException("没有可用的编解码器：" + type.getName());
+    }
+
+    public byte[] encode(Object value) {
+        return getCodec(value.getClass()).encode(value);
+    }
+
+    public <T> T decode(byte[] data, Class<T> type) {
+        return getCodec(type).decode(data, type);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.yimint.curator.codec;
+
+import com.yimint.curator.exception.CuratorClientException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * protobuf风格的二进制消息
+ * 支持同时具有静态方法parseFrom(byte[])和实例方法toByteArray()的类型，例如protobuf生成的消息类，
+ * 不需要依赖protobuf运行时。方法按类型反射解析一次后缓存。
+ */
+public class ProtobufNodeCodec implements NodeCodec {
+
+    private final Map<Class<?>, Optional<Method[]>> methods = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return resolve(type).isPresent();
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        Method[] pair = resolve(value.getClass()).orElseThrow(() -> new CuratorClientException("不支持的类型：" + value.getClass()));
+        try {
+            return (byte[]) pair[1].invoke(value);
+        } catch (ReflectiveOperationException e) {
+            throw new CuratorClientException("二进制编码失败", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+        Method[] pair = resolve(type).orElseThrow(() -> new CuratorClientException("不支持的类型：" + type));
+        try {
+            return type.cast(pair[0].invoke(null, (Object) data));
+        } catch (ReflectiveOperationException e) {
+            throw new CuratorClientException("二进制解码失败", e);
+        }
+    }
+
+    private Optional<Method[]> resolve(Class<?> type) {
+        return methods.computeIfAbsent(type, cls -> {
+            try {
+                Method parseFrom = cls.getMethod("parseFrom", byte[].class);
+                Method toByteArray = cls.getMethod("toByteArray");
+                if (!Modifier.isStatic(parseFrom.getModifiers()) || toByteArray.getReturnType()!=byte[].class) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Method[]{parseFrom, toByteArray});
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.yimint.curator.codec;
+
+import java.nio.charset.Charset;
+
+/**
+ * 字符串，字符集在创建时解析一次
+ */
+public class StringNodeCodec implements NodeCodec {
+
+    private final Charset charset;
+
+    public StringNodeCodec(Charset charset) {
+        this.charset = charset;
+    }
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return type==String.class;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return ((String) value).getBytes(charset);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+        return type.cast(new String(data, charset));
+    }
+
+}
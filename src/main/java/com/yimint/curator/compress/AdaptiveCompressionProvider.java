@@ -0,0 +1,255 @@
+package com.yimint.curator.compress;
+
+import com.yimint.curator.exception.CuratorClientException;
+import org.apache.curator.framework.api.CompressionProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * 按大小和路径自适应的压缩
+ * 压缩后的数据带有自描述的头部：2字节魔数 + 1字节格式 + 4字节原始长度，
+ * 没有头部的数据按原样读取，因此压缩节点和未压缩节点可以共存；旧的gzip数据也能读取。
+ * 恰好以本格式魔数或gzip魔数开头的未压缩数据写入时加上STORED头部，读取时不会被误当作压缩数据。
+ * 小于阈值、路径不匹配或压缩收益不足的数据保持原样。Deflater/Inflater对象池化复用。
+ */
+public class AdaptiveCompressionProvider implements CompressionProvider {
+
+    private static final byte MAGIC_0 = (byte) 0xC7;
+    private static final byte MAGIC_1 = (byte) 0x5A;
+    private static final byte GZIP_MAGIC_0 = (byte) 0x1F;
+    private static final byte GZIP_MAGIC_1 = (byte) 0x8B;
+    private static final byte FORMAT_STORED = 0;
+    private static final byte FORMAT_DEFLATE = 1;
+    private static final int HEADER_LENGTH = 7;
+    /**
+     * 压缩后至少节省的比例，达不到时保存原始数据
+     */
+    private static final double MIN_SAVING_RATIO = 0.1;
+    /**
+     * 解压后的最大长度，头部中的原始长度来自节点数据，不可信
+     */
+    private static final int MAX_ORIGINAL_LENGTH = 64 * 1024 * 1024;
+    /**
+     * deflate格式的理论最大压缩比
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private final int thresholdBytes;
+    private final int level;
+    private final List<String> includePaths;
+    private final List<String> excludePaths;
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> inflaters;
+    private final AtomicLong compressedCount = new AtomicLong();
+    private final AtomicLong bytesBeforeCompression = new AtomicLong();
+    private final AtomicLong bytesAfterCompression = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+    private final AtomicLong decompressNanos = new AtomicLong();
+
+    /**
+     * @param thresholdBytes 超过该大小才尝试压缩
+     * @param level          压缩级别，1~9
+     * @param includePaths   需要压缩的路径前缀，为空表示所有路径
+     * @param excludePaths   不压缩的路径前缀
+     * @param poolSize       Deflater/Inflater对象池大小
+     */
+    public AdaptiveCompressionProvider(int thresholdBytes, int level, List<String> includePaths, List<String> excludePaths, int poolSize) {
+        this.thresholdBytes = thresholdBytes;
+        this.level = level;
+        this.includePaths = includePaths;
+        this.excludePaths = excludePaths;
+        this.deflaters = new ArrayBlockingQueue<>(poolSize);
+        this.inflaters = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @Override
+    public byte[] compress(String path, byte[] data) {
+        if (data.length<thresholdBytes || !matches(path)) {
+            return stored(data);
+        }
+        long start = System.nanoTime();
+        Deflater deflater = deflaters.poll();
+        if (deflater==null) {
+            deflater = new Deflater(level);
+        }
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[HEADER_LENGTH + data.length];
+            int length = HEADER_LENGTH;
+            while (!deflater.finished() && length<buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            if (!deflater.finished() || length>HEADER_LENGTH + data.length * (1 - MIN_SAVING_RATIO)) {
+                // 压缩收益不足，保存原始数据
+                return stored(data);
+            }
+            writeHeader(buffer, FORMAT_DEFLATE, data.length);
+            compressedCount.incrementAndGet();
+            bytesBeforeCompression.addAndGet(data.length);
+            bytesAfterCompression.addAndGet(length);
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+            compressNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public byte[] decompress(String path, byte[] data) {
+        if (data==null) {
+            return null;
+        }
+        if (data.length>=HEADER_LENGTH && data[0]==MAGIC_0 && data[1]==MAGIC_1) {
+            if (data[2]==FORMAT_STORED) {
+                return Arrays.copyOfRange(data, HEADER_LENGTH, data.length);
+            }
+            if (data[2]==FORMAT_DEFLATE) {
+                return inflate(data);
+            }
+        }
+        if (data.length>2 && data[0]==GZIP_MAGIC_0 && data[1]==GZIP_MAGIC_1) {
+            return gunzip(data);
+        }
+        return data;
+    }
+
+    private byte[] inflate(byte[] data) {
+        long start = System.nanoTime();
+        int originalLength = ((data[3] & 0xFF)<<24) | ((data[4] & 0xFF)<<16) | ((data[5] & 0xFF)<<8) | (data[6] & 0xFF);
+        if (originalLength<0 || originalLength>MAX_ORIGINAL_LENGTH
+                || originalLength>(long) (data.length - HEADER_LENGTH) * MAX_DEFLATE_RATIO) {
+            throw new CuratorClientException("解压节点数据失败，原始长度不合法：" + originalLength);
+        }
+        Inflater inflater = inflaters.poll();
+        if (inflater==null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+            byte[] result = new byte[originalLength];
+            int length = 0;
+            while (length<originalLength && !inflater.finished()) {
+                int n = inflater.inflate(result, length, originalLength - length);
+                if (n==0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length!=originalLength) {
+                throw new CuratorClientException("解压节点数据失败，长度不一致");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new CuratorClientException("解压节点数据失败", e);
+        } finally {
+            inflater.reset();
+            if (!inflaters.offer(inflater)) {
+                inflater.end();
+            }
+            decompressNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 兼容GzipCompressionProvider写入的数据，格式不正确时按原始数据返回
+     */
+    private byte[] gunzip(byte[] data) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer))>0) {
+                if (out.size() + n>MAX_ORIGINAL_LENGTH) {
+                    throw new CuratorClientException("解压节点数据失败，超过最大长度：" + MAX_ORIGINAL_LENGTH);
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            return data;
+        }
+    }
+
+    /**
+     * 不压缩的数据原样保存；只有恰好以本格式魔数或gzip魔数开头的数据才需要加上STORED头部以免被误读
+     */
+    private byte[] stored(byte[] data) {
+        if (data.length<2 || !(data[0]==MAGIC_0 && data[1]==MAGIC_1 || data[0]==GZIP_MAGIC_0 && data[1]==GZIP_MAGIC_1)) {
+            return data;
+        }
+        byte[] result = new byte[HEADER_LENGTH + data.length];
+        writeHeader(result, FORMAT_STORED, data.length);
+        System.arraycopy(data, 0, result, HEADER_LENGTH, data.length);
+        return result;
+    }
+
+    private static void writeHeader(byte[] buffer, byte format, int originalLength) {
+        buffer[0] = MAGIC_0;
+        buffer[1] = MAGIC_1;
+        buffer[2] = format;
+        buffer[3] = (byte) (originalLength>>>24);
+        buffer[4] = (byte) (originalLength>>>16);
+        buffer[5] = (byte) (originalLength>>>8);
+        buffer[6] = (byte) originalLength;
+    }
+
+    private boolean matches(String path) {
+        if (path==null) {
+            return includePaths.isEmpty();
+        }
+        for (String prefix : excludePaths) {
+            if (path.startsWith(prefix)) {
+                return false;
+            }
+        }
+        if (includePaths.isEmpty()) {
+            return true;
+        }
+        for (String prefix : includePaths) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    public long getBytesBeforeCompression() {
+        return bytesBeforeCompression.get();
+    }
+
+    public long getBytesAfterCompression() {
+        return bytesAfterCompression.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesBeforeCompression.get() - bytesAfterCompression.get();
+    }
+
+    public long getCompressNanos() {
+        return compressNanos.get();
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos.get();
+    }
+
+}
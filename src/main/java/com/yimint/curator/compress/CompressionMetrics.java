@@ -0,0 +1,39 @@
+package com.yimint.curator.compress;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.curator.framework.api.CompressionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压缩节省的字节数与耗费的CPU时间
+ */
+public class CompressionMetrics implements MeterBinder {
+
+    private final CompressionProvider compressionProvider;
+
+    public CompressionMetrics(CompressionProvider compressionProvider) {
+        this.compressionProvider = compressionProvider;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(compressionProvider instanceof AdaptiveCompressionProvider)) {
+            return;
+        }
+        AdaptiveCompressionProvider provider = (AdaptiveCompressionProvider) compressionProvider;
+        FunctionCounter.builder("curator.compression.count", provider, AdaptiveCompressionProvider::getCompressedCount)
+                .description("被压缩的节点写入次数").register(registry);
+        FunctionCounter.builder("curator.compression.bytes.before", provider, AdaptiveCompressionProvider::getBytesBeforeCompression)
+                .baseUnit("bytes").description("压缩前的字节数").register(registry);
+        FunctionCounter.builder("curator.compression.bytes.saved", provider, AdaptiveCompressionProvider::getBytesSaved)
+                .baseUnit("bytes").description("压缩节省的字节数").register(registry);
+        FunctionCounter.builder("curator.compression.compress.time", provider, p -> p.getCompressNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                .baseUnit("seconds").description("压缩耗费的时间").register(registry);
+        FunctionCounter.builder("curator.compression.decompress.time", provider, p -> p.getDecompressNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                .baseUnit("seconds").description("解压耗费的时间").register(registry);
+    }
+
+}
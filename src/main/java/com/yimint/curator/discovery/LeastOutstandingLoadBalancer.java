@@ -0,0 +1,94 @@
+package com.yimint.curator.discovery;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 最少未完成请求
+ * 随机取两个实例，选择未完成请求较少的一个（power of two choices），避免所有调用方同时涌向同一个最空闲的实例。
+ * 调用结束后需要调用{@link #release(ServiceInstance)}。
+ * 实例快照变化时清理已下线且没有未完成请求的实例计数，仍有未完成请求的在最后一次release()时清理。
+ */
+public class LeastOutstandingLoadBalancer implements LoadBalancer {
+
+    private final Map<String, AtomicInteger> outstanding = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    @Override
+    public ServiceInstance choose(List<ServiceInstance> instances) {
+        Snapshot current = snapshot;
+        if (current==null || current.instances!=instances) {
+            current = new Snapshot(instances);
+            snapshot = current;
+            prune(current);
+        }
+        ServiceInstance chosen;
+        if (instances.size()==1) {
+            chosen = instances.get(0);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(instances.size());
+            int second = random.nextInt(instances.size() - 1);
+            if (second>=first) {
+                second++;
+            }
+            ServiceInstance a = instances.get(first);
+            ServiceInstance b = instances.get(second);
+            chosen = counter(a).get()<=counter(b).get() ? a : b;
+        }
+        counter(chosen).incrementAndGet();
+        return chosen;
+    }
+
+    @Override
+    public void release(ServiceInstance instance) {
+        AtomicInteger counter = outstanding.get(instance.getId());
+        if (counter!=null && counter.decrementAndGet()<=0) {
+            Snapshot current = snapshot;
+            if (current!=null && !current.ids.contains(instance.getId())) {
+                outstanding.remove(instance.getId(), counter);
+            }
+        }
+    }
+
+    /**
+     * 实例当前的未完成请求数
+     *
+     * @param instance 实例
+     * @return 未完成请求数
+     */
+    public int getOutstanding(ServiceInstance instance) {
+        AtomicInteger counter = outstanding.get(instance.getId());
+        return counter==null ? 0 : counter.get();
+    }
+
+    private AtomicInteger counter(ServiceInstance instance) {
+        return outstanding.computeIfAbsent(instance.getId(), id -> new AtomicInteger());
+    }
+
+    /**
+     * 移除不在快照中且计数为0的实例；同一个策略用于多个服务时，其他服务的实例计数为0时也会被移除，下次选择时重新创建
+     */
+    private void prune(Snapshot current) {
+        outstanding.entrySet().removeIf(entry -> entry.getValue().get()<=0 && !current.ids.contains(entry.getKey()));
+    }
+
+    /**
+     * 实例快照及其id集合
+     */
+    private static final class Snapshot {
+        final List<ServiceInstance> instances;
+        final Set<String> ids;
+
+        Snapshot(List<ServiceInstance> instances) {
+            this.instances = instances;
+            this.ids = instances.stream().map(ServiceInstance::getId).collect(Collectors.toSet());
+        }
+    }
+
+}
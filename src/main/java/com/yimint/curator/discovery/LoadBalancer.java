@@ -0,0 +1,26 @@
+package com.yimint.curator.discovery;
+
+import java.util.List;
+
+/**
+ * 本地负载均衡策略，只在服务实例快照上选择，不访问zookeeper
+ */
+public interface LoadBalancer {
+
+    /**
+     * 选择一个实例
+     *
+     * @param instances 不可变的实例快照，不为空
+     * @return 实例
+     */
+    ServiceInstance choose(List<ServiceInstance> instances);
+
+    /**
+     * 调用结束后释放实例，需要统计未完成请求数的策略使用
+     *
+     * @param instance 实例
+     */
+    default void release(ServiceInstance instance) {
+    }
+
+}
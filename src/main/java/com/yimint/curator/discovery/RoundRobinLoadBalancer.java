@@ -0,0 +1,18 @@
+package com.yimint.curator.discovery;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询
+ */
+public class RoundRobinLoadBalancer implements LoadBalancer {
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public ServiceInstance choose(List<ServiceInstance> instances) {
+        return instances.get(Math.floorMod(next.getAndIncrement(), instances.size()));
+    }
+
+}
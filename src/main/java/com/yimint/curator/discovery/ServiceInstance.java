@@ -0,0 +1,24 @@
+package com.yimint.curator.discovery;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 服务实例，以JSON保存在 {basePath}/{name}/{id} 临时节点中
+ */
+@Data
+public class ServiceInstance {
+
+    private String id;
+    private String name;
+    private String host;
+    private int port;
+    /**
+     * 加权负载均衡使用的权重
+     */
+    private int weight = 1;
+    private Map<String, String> metadata = new HashMap<>();
+
+}
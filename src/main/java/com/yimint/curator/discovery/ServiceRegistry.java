@@ -0,0 +1,194 @@
+package com.yimint.curator.discovery;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务注册与发现
+ * 实例以JSON保存在 {basePath}/{name}/{id} 临时节点中，会话丢失后重新连接时自动重新注册本实例注册过的服务。
+ * 发现端用一个CuratorCache监听整个basePath，每个服务维护一份不可变的实例快照，实例变化时整体替换（copy-on-write），
+ * 查询实例和负载均衡选择都只读本地快照，不访问zookeeper。
+ */
+@Slf4j
+public class ServiceRegistry implements Closeable {
+
+    private static final long INIT_TIMEOUT_MS = 5000;
+
+    private final CuratorFramework client;
+    private final String basePath;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, ServiceInstance> registered = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, ServiceInstance>> instances = new HashMap<>();
+    private final Map<String, List<ServiceInstance>> snapshots = new ConcurrentHashMap<>();
+    private final ConnectionStateListener connectionListener = this::onStateChanged;
+    private final CuratorCache cache;
+
+    /**
+     * @param client   会话
+     * @param basePath 注册根节点
+     */
+    public ServiceRegistry(CuratorFramework client, String basePath) {
+        this.client = client;
+        this.basePath = basePath;
+        CountDownLatch initialized = new CountDownLatch(1);
+        this.cache = CuratorCache.build(client, basePath);
+        cache.listenable().addListener(CuratorCacheListener.builder()
+                .forCreatesAndChanges((oldNode, node) -> update(node, false))
+                .forDeletes(node -> update(node, true))
+                .forInitialized(initialized::countDown)
+                .build());
+        cache.start();
+        client.getConnectionStateListenable().addListener(connectionListener);
+        try {
+            initialized.await(INIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 注册实例，未设置id时生成随机id
+     *
+     * @param instance 实例
+     */
+    public void register(ServiceInstance instance) {
+        if (instance.getId()==null) {
+            instance.setId(UUID.randomUUID().toString());
+        }
+        registered.put(instance.getId(), instance);
+        create(instance);
+    }
+
+    /**
+     * 注销实例
+     *
+     * @param instance 实例
+     */
+    public void unregister(ServiceInstance instance) {
+        registered.remove(instance.getId());
+        try {
+            client.delete().forPath(instancePath(instance));
+        } catch (KeeperException.NoNodeException e) {
+            // 已随会话删除
+        } catch (Exception e) {
+            throw new CuratorClientException("注销服务出错：" + instancePath(instance), e);
+        }
+    }
+
+    /**
+     * 服务的实例快照
+     *
+     * @param name 服务名称
+     * @return 不可变的实例列表，没有实例时为空列表
+     */
+    public List<ServiceInstance> getInstances(String name) {
+        return snapshots.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * 用指定的负载均衡策略选择一个实例
+     *
+     * @param name         服务名称
+     * @param loadBalancer 负载均衡策略
+     * @return 实例，没有实例时为null
+     */
+    public ServiceInstance choose(String name, LoadBalancer loadBalancer) {
+        List<ServiceInstance> snapshot = getInstances(name);
+        return snapshot.isEmpty() ? null : loadBalancer.choose(snapshot);
+    }
+
+    private void create(ServiceInstance instance) {
+        try {
+            client.create().creatingParentContainersIfNeeded().withMode(CreateMode.EPHEMERAL)
+                    .forPath(instancePath(instance), objectMapper.writeValueAsBytes(instance));
+        } catch (KeeperException.NodeExistsException e) {
+            // 旧会话的节点尚未过期
+        } catch (Exception e) {
+            throw new CuratorClientException("注册服务出错：" + instancePath(instance), e);
+        }
+    }
+
+    private void onStateChanged(CuratorFramework client, ConnectionState state) {
+        if (state!=ConnectionState.RECONNECTED) {
+            return;
+        }
+        for (ServiceInstance instance : registered.values()) {
+            try {
+                create(instance);
+            } catch (CuratorClientException e) {
+                log.warn("re-register service failed, path: {}", instancePath(instance), e);
+            }
+        }
+    }
+
+    private synchronized void update(ChildData data, boolean deleted) {
+        String[] segments = data.getPath().substring(basePath.length()).split("/");
+        // 只处理 /{name}/{id} 两级节点
+        if (segments.length!=3) {
+            return;
+        }
+        String name = segments[1];
+        String id = segments[2];
+        Map<String, ServiceInstance> service = instances.computeIfAbsent(name, k -> new HashMap<>());
+        if (deleted) {
+            service.remove(id);
+            ServiceInstance own = registered.get(id);
+            if (own!=null && name.equals(own.getName()) && client.getZookeeperClient().isConnected()) {
+                // 连接正常时自己的节点被删除，说明会话已过期重建
+                try {
+                    create(own);
+                } catch (CuratorClientException e) {
+                    log.warn("re-register service failed, path: {}", data.getPath(), e);
+                }
+            }
+        } else {
+            try {
+                service.put(id, objectMapper.readValue(data.getData(), ServiceInstance.class));
+            } catch (Exception e) {
+                log.warn("parse service instance failed, path: {}", data.getPath(), e);
+                return;
+            }
+        }
+        List<ServiceInstance> snapshot = new ArrayList<>(service.values());
+        snapshot.sort((a, b) -> a.getId().compareTo(b.getId()));
+        snapshots.put(name, Collections.unmodifiableList(snapshot));
+    }
+
+    private String instancePath(ServiceInstance instance) {
+        return basePath + "/" + instance.getName() + "/" + instance.getId();
+    }
+
+    @Override
+    public void close() {
+        client.getConnectionStateListenable().removeListener(connectionListener);
+        cache.close();
+        for (ServiceInstance instance : new ArrayList<>(registered.values())) {
+            try {
+                unregister(instance);
+            } catch (CuratorClientException e) {
+                log.debug("unregister service failed, path: {}", instancePath(instance), e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.yimint.curator.discovery;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按权重随机
+ * 实例快照是不可变的，累计权重按快照缓存，快照不变时选择只需要一次二分查找。
+ */
+public class WeightedLoadBalancer implements LoadBalancer {
+
+    private volatile Weights weights;
+
+    @Override
+    public ServiceInstance choose(List<ServiceInstance> instances) {
+        Weights current = weights;
+        if (current==null || current.instances!=instances) {
+            current = new Weights(instances);
+            weights = current;
+        }
+        if (current.total<=0) {
+            return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+        }
+        // 第一个累计权重大于随机值的实例，权重为0的实例不会被选中
+        long value = ThreadLocalRandom.current().nextLong(current.total);
+        int low = 0;
+        int high = current.cumulative.length - 1;
+        while (low<high) {
+            int mid = (low + high)>>>1;
+            if (current.cumulative[mid]>value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return instances.get(low);
+    }
+
+    private static final class Weights {
+        final List<ServiceInstance> instances;
+        final long[] cumulative;
+        final long total;
+
+        Weights(List<ServiceInstance> instances) {
+            this.instances = instances;
+            this.cumulative = new long[instances.size()];
+            long sum = 0;
+            for (int i = 0; i<instances.size(); i++) {
+                sum += Math.max(0, instances.get(i).getWeight());
+                cumulative[i] = sum;
+            }
+            this.total = sum;
+        }
+    }
+
+}
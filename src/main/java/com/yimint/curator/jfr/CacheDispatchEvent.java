@@ -0,0 +1,29 @@
+package com.yimint.curator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 缓存事件分发延迟，持续时间为事件提交到监听器线程池后排队等待执行的时间
+ */
+@Name("com.yimint.curator.CacheDispatch")
+@Label("Cache Event Dispatch")
+@Description("Time a cache event waited in the listener executor before being handled")
+@Category({"Curator", "Cache"})
+@Enabled(false)
+@StackTrace(false)
+@Threshold("0 ms")
+class CacheDispatchEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Listener")
+    String listener;
+
+}
@@ -0,0 +1,32 @@
+package com.yimint.curator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 连接状态变化事件
+ */
+@Name("com.yimint.curator.ConnectionState")
+@Label("Connection State Change")
+@Description("Curator connection state transition")
+@Category({"Curator", "ZooKeeper"})
+@Enabled(false)
+@StackTrace(false)
+class ConnectionStateEvent extends jdk.jfr.Event {
+
+    @Label("State")
+    String state;
+
+    @Label("Previous State")
+    String previousState;
+
+    @Label("Time In Previous State")
+    @Timespan(Timespan.MILLISECONDS)
+    long previousStateMillis;
+
+}
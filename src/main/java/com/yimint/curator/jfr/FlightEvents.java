@@ -0,0 +1,233 @@
+package com.yimint.curator.jfr;
+
+import jdk.jfr.EventType;
+import org.apache.zookeeper.KeeperException;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Java Flight Recorder事件入口
+ * 事件默认关闭，通过JFR配置（例如classpath中的jfr/curator.jfc）开启；关闭时begin*()只读取缓存的EventType做一次isEnabled()判断
+ * 并返回null，不创建事件对象。运行环境没有jdk.jfr（低于8u262的jdk8）时所有方法都是空操作，事件类不会被加载。
+ * 返回值是事件句柄，只能原样传给对应的end*()方法。
+ */
+public final class FlightEvents {
+
+    public static final String OK = "OK";
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private FlightEvents() {
+    }
+
+    /**
+     * 开始一次zookeeper操作
+     *
+     * @return 事件句柄，事件未开启时为null
+     */
+    public static Object beginOperation() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        if (!Types.OPERATION.isEnabled()) {
+            return null;
+        }
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 结束一次zookeeper操作
+     *
+     * @param handle     beginOperation()的返回值
+     * @param operation  操作类型
+     * @param path       节点名称
+     * @param bytes      写入或读取的字节数
+     * @param resultCode 结果码，成功为OK
+     */
+    public static void endOperation(Object handle, String operation, String path, long bytes, String resultCode) {
+        if (handle==null) {
+            return;
+        }
+        OperationEvent event = (OperationEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.path = path;
+            event.bytes = bytes;
+            event.resultCode = resultCode;
+            event.commit();
+        }
+    }
+
+    /**
+     * 开始等待锁
+     *
+     * @return 事件句柄，事件未开启时为null
+     */
+    public static Object beginLockWait() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        if (!Types.LOCK_WAIT.isEnabled()) {
+            return null;
+        }
+        LockWaitEvent event = new LockWaitEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 结束等待锁
+     *
+     * @param handle   beginLockWait()的返回值
+     * @param path     锁路径
+     * @param lockType 锁类型
+     * @param acquired 是否获取成功
+     */
+    public static void endLockWait(Object handle, String path, String lockType, boolean acquired) {
+        if (handle==null) {
+            return;
+        }
+        LockWaitEvent event = (LockWaitEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.lockType = lockType;
+            event.acquired = acquired;
+            event.commit();
+        }
+    }
+
+    /**
+     * 开始持有锁
+     *
+     * @return 事件句柄，事件未开启时为null
+     */
+    public static Object beginLockHold() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        if (!Types.LOCK_HOLD.isEnabled()) {
+            return null;
+        }
+        LockHoldEvent event = new LockHoldEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 结束持有锁
+     *
+     * @param handle   beginLockHold()的返回值
+     * @param path     锁路径
+     * @param lockType 锁类型
+     */
+    public static void endLockHold(Object handle, String path, String lockType) {
+        if (handle==null) {
+            return;
+        }
+        LockHoldEvent event = (LockHoldEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.lockType = lockType;
+            event.commit();
+        }
+    }
+
+    /**
+     * 缓存事件提交到监听器线程池
+     *
+     * @return 事件句柄，事件未开启时为null
+     */
+    public static Object beginCacheDispatch() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        if (!Types.CACHE_DISPATCH.isEnabled()) {
+            return null;
+        }
+        CacheDispatchEvent event = new CacheDispatchEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 缓存事件开始在线程池中执行
+     *
+     * @param handle   beginCacheDispatch()的返回值
+     * @param path     缓存路径
+     * @param listener 监听器类名
+     */
+    public static void endCacheDispatch(Object handle, String path, String listener) {
+        if (handle==null) {
+            return;
+        }
+        CacheDispatchEvent event = (CacheDispatchEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.listener = listener;
+            event.commit();
+        }
+    }
+
+    /**
+     * 记录连接状态变化
+     *
+     * @param state               新状态
+     * @param previousState       之前的状态，首次连接时为null
+     * @param previousStateMillis 处于之前状态的时长
+     */
+    public static void connectionStateChanged(String state, String previousState, long previousStateMillis) {
+        if (!AVAILABLE || !Types.CONNECTION_STATE.isEnabled()) {
+            return;
+        }
+        ConnectionStateEvent event = new ConnectionStateEvent();
+        if (event.shouldCommit()) {
+            event.state = state;
+            event.previousState = previousState;
+            event.previousStateMillis = previousStateMillis;
+            event.commit();
+        }
+    }
+
+    /**
+     * 异常对应的结果码：zookeeper异常使用KeeperException.Code，其他异常使用类名
+     *
+     * @param e 异常
+     * @return 结果码
+     */
+    public static String resultCode(Throwable e) {
+        if (e instanceof KeeperException) {
+            return ((KeeperException) e).code().name();
+        }
+        if (e instanceof TimeoutException) {
+            return "TIMEOUT";
+        }
+        return e.getClass().getSimpleName();
+    }
+
+    /**
+     * 事件类型，只在jdk.jfr可用时加载
+     */
+    private static final class Types {
+        static final EventType OPERATION = EventType.getEventType(OperationEvent.class);
+        static final EventType LOCK_WAIT = EventType.getEventType(LockWaitEvent.class);
+        static final EventType LOCK_HOLD = EventType.getEventType(LockHoldEvent.class);
+        static final EventType CACHE_DISPATCH = EventType.getEventType(CacheDispatchEvent.class);
+        static final EventType CONNECTION_STATE = EventType.getEventType(ConnectionStateEvent.class);
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+}
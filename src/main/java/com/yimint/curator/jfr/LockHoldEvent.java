@@ -0,0 +1,29 @@
+package com.yimint.curator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 持有分布式锁的事件，持续时间从首次获取到最后一次释放，可重入的多次获取只记录一次
+ */
+@Name("com.yimint.curator.LockHold")
+@Label("Lock Hold")
+@Description("Time between the first acquire() and the matching final release() on a thread")
+@Category({"Curator", "Lock"})
+@Enabled(false)
+@StackTrace(false)
+@Threshold("0 ms")
+class LockHoldEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Lock Type")
+    String lockType;
+
+}
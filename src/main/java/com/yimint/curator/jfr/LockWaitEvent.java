@@ -0,0 +1,32 @@
+package com.yimint.curator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 等待分布式锁的事件，持续时间为acquire()的阻塞时间
+ */
+@Name("com.yimint.curator.LockWait")
+@Label("Lock Wait")
+@Description("Time a thread spent blocked in acquire()")
+@Category({"Curator", "Lock"})
+@Enabled(false)
+@StackTrace(false)
+@Threshold("0 ms")
+class LockWaitEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Lock Type")
+    String lockType;
+
+    @Label("Acquired")
+    boolean acquired;
+
+}
@@ -0,0 +1,37 @@
+package com.yimint.curator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * zookeeper操作事件，持续时间为一次客户端调用的耗时（包含重试）
+ */
+@Name("com.yimint.curator.Operation")
+@Label("ZooKeeper Operation")
+@Description("A single CuratorClientV510 call, including retries")
+@Category({"Curator", "ZooKeeper"})
+@Enabled(false)
+@StackTrace(false)
+@Threshold("0 ms")
+class OperationEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Result Code")
+    String resultCode;
+
+}
@@ -0,0 +1,219 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地聚合的分布式计数器
+ * 增量先累加到本地的LongAdder中，定期用一次CAS合并到计数节点，避免每次累加都访问zookeeper。
+ * get()返回最近一次已知的全局值加上本地未合并的增量，get(maxStalenessMs)在全局值过旧时先从zookeeper刷新。
+ * 节点数据为"计数,标记1,标记2,..."，每次合并写入唯一的标记并保留最近的若干个；合并的结果因连接中断而不确定时，
+ * 重试前和下一次合并前先检查标记是否已写入，避免同一个增量被合并两次。
+ * 客户端stop()时会合并剩余的增量。
+ */
+@Slf4j
+public class DistributedCounter implements Closeable {
+
+    /**
+     * 节点中保留的最近合并标记数量
+     */
+    private static final int MAX_TOKENS = 16;
+
+    private final CuratorClientV510 curatorClient;
+    private final String path;
+    private final String writerId = Integer.toHexString(ThreadLocalRandom.current().nextInt());
+    private final LongAdder pending = new LongAdder();
+    private final ScheduledFuture<?> flushTask;
+    private volatile long globalValue;
+    private volatile long refreshedAt;
+    private long flushSequence;
+    /**
+     * 结果不确定的合并：标记和增量，下一次合并前确认
+     */
+    private String inDoubtToken;
+    private long inDoubtDelta;
+
+    /**
+     * @param curatorClient   客户端
+     * @param path            计数节点
+     * @param flushIntervalMs 合并间隔
+     * @param scheduler       定时合并使用的线程池
+     */
+    public DistributedCounter(CuratorClientV510 curatorClient, String path, long flushIntervalMs, ScheduledExecutorService scheduler) {
+        this.curatorClient = curatorClient;
+        this.path = path;
+        try {
+            refresh();
+        } catch (CuratorClientException e) {
+            // 加载失败时get()只包含本地增量，get(maxStalenessMs)会再次刷新
+            log.warn("load distributed counter failed, path: {}", path, e);
+        }
+        this.flushTask = scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void increment() {
+        pending.increment();
+    }
+
+    public void add(long delta) {
+        pending.add(delta);
+    }
+
+    /**
+     * 获取计数，不访问zookeeper
+     *
+     * @return 最近一次已知的全局值 + 本地未合并的增量
+     */
+    public long get() {
+        return globalValue + pending.sum();
+    }
+
+    /**
+     * 获取计数，全局值超过允许的陈旧时间时先从zookeeper刷新
+     *
+     * @param maxStalenessMs 允许的陈旧时间
+     * @return 计数
+     */
+    public long get(long maxStalenessMs) {
+        if (System.currentTimeMillis() - refreshedAt>maxStalenessMs) {
+            refresh();
+        }
+        return get();
+    }
+
+    /**
+     * 从zookeeper刷新全局值
+     */
+    public void refresh() {
+        try {
+            globalValue = parse(curatorClient.getNodeData(path, new Stat()).split(","));
+        } catch (CuratorClientException e) {
+            if (!(e.getCause() instanceof KeeperException.NoNodeException)) {
+                throw e;
+            }
+            globalValue = 0;
+        }
+        refreshedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 将本地增量合并到计数节点，没有增量时刷新全局值
+     */
+    public synchronized void flush() {
+        if (inDoubtToken!=null) {
+            resolveInDoubt();
+        }
+        // 不使用sumThenReset()，JDK8中它与并发的累加不是原子的
+        long delta = pending.sum();
+        if (delta==0) {
+            refresh();
+            return;
+        }
+        pending.add(-delta);
+        String token = writerId + "-" + Long.toString(++flushSequence, 36);
+        try {
+            while (true) {
+                Stat stat = new Stat();
+                String[] fields;
+                try {
+                    fields = curatorClient.getNodeData(path, stat).split(",");
+                } catch (CuratorClientException e) {
+                    if (e.getCause() instanceof KeeperException.NoNodeException) {
+                        curatorClient.createNodeIfAbsent(CreateMode.PERSISTENT, path, "0");
+                        continue;
+                    }
+                    throw e;
+                }
+                long current = parse(fields);
+                if (Arrays.asList(fields).contains(token)) {
+                    // 上一次CAS已提交但响应丢失，重试时返回BadVersion
+                    setGlobalValue(current);
+                    return;
+                }
+                if (curatorClient.compareAndSetNodeData(path, format(current + delta, fields, token), stat.getVersion())) {
+                    setGlobalValue(current + delta);
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            // 写入可能已经提交，下一次合并前根据标记确认，未写入时再放回本地
+            inDoubtToken = token;
+            inDoubtDelta = delta;
+            throw e;
+        }
+    }
+
+    /**
+     * 确认上一次结果不确定的合并是否已写入；节点中已没有该标记时（之后又有超过MAX_TOKENS次合并）视为未写入
+     */
+    private void resolveInDoubt() {
+        String[] fields;
+        try {
+            fields = curatorClient.getNodeData(path, new Stat()).split(",");
+        } catch (CuratorClientException e) {
+            if (!(e.getCause() instanceof KeeperException.NoNodeException)) {
+                throw e;
+            }
+            fields = new String[]{"0"};
+        }
+        if (!Arrays.asList(fields).contains(inDoubtToken)) {
+            pending.add(inDoubtDelta);
+        }
+        inDoubtToken = null;
+        inDoubtDelta = 0;
+    }
+
+    private void setGlobalValue(long value) {
+        globalValue = value;
+        refreshedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 新的计数加上最近的标记，最旧的标记被移除
+     */
+    private static String format(long value, String[] fields, String token) {
+        List<String> tokens = new ArrayList<>(Arrays.asList(fields).subList(1, fields.length));
+        tokens.add(token);
+        if (tokens.size()>MAX_TOKENS) {
+            tokens = tokens.subList(tokens.size() - MAX_TOKENS, tokens.size());
+        }
+        return value + "," + String.join(",", tokens);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("flush distributed counter failed, path: {}", path, e);
+        }
+    }
+
+    private long parse(String[] fields) {
+        try {
+            return Long.parseLong(fields[0].trim());
+        } catch (NumberFormatException e) {
+            throw new CuratorClientException("计数节点数据不是数字：" + path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flushTask.cancel(false);
+        flushQuietly();
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 号段式分布式ID生成器
+ * 计数节点保存下一个未分配的ID，每次通过带版本号的CAS预占一个号段，号段内的ID在本地用AtomicLong分配，不需要网络调用。
+ * 号段用掉3/4时在后台预取下一个号段；号段大小根据消耗速度自适应：消耗过快时翻倍，过慢时减半。
+ * 进程退出时未用完的ID会被丢弃，生成的ID全局唯一、单调递增但不连续。
+ */
+@Slf4j
+public class DistributedIdGenerator {
+
+    private final CuratorClientV510 curatorClient;
+    private final String path;
+    private final int minBlockSize;
+    private final int maxBlockSize;
+    private final long targetBlockMillis;
+    private final Executor executor;
+    private final AtomicReference<CompletableFuture<Block>> prefetch = new AtomicReference<>();
+    private volatile Block current = new Block(0, 0);
+    private volatile int blockSize;
+
+    /**
+     * @param curatorClient     客户端
+     * @param path              计数节点
+     * @param minBlockSize      最小号段大小
+     * @param maxBlockSize      最大号段大小
+     * @param targetBlockMillis 期望一个号段的使用时长，用于调整号段大小
+     * @param executor          预取号段使用的线程池
+     */
+    public DistributedIdGenerator(CuratorClientV510 curatorClient, String path, int minBlockSize, int maxBlockSize,
+                                  long targetBlockMillis, Executor executor) {
+        this.curatorClient = curatorClient;
+        this.path = path;
+        this.minBlockSize = minBlockSize;
+        this.maxBlockSize = maxBlockSize;
+        this.targetBlockMillis = targetBlockMillis;
+        this.executor = executor;
+        this.blockSize = minBlockSize;
+    }
+
+    /**
+     * 获取下一个ID
+     *
+     * @return ID
+     */
+    public long nextId() {
+        while (true) {
+            Block block = current;
+            long id = block.cursor.getAndIncrement();
+            if (id<block.end) {
+                if (id==block.prefetchAt) {
+                    startPrefetch();
+                }
+                return id;
+            }
+            switchBlock(block);
+        }
+    }
+
+    private void startPrefetch() {
+        CompletableFuture<Block> future = new CompletableFuture<>();
+        if (prefetch.compareAndSet(null, future)) {
+            int size = blockSize;
+            executor.execute(() -> {
+                try {
+                    future.complete(reserve(size));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+    }
+
+    private synchronized void switchBlock(Block exhausted) {
+        if (current!=exhausted) {
+            return;
+        }
+        adaptBlockSize(exhausted);
+        CompletableFuture<Block> future = prefetch.getAndSet(null);
+        Block next = null;
+        if (future!=null) {
+            try {
+                next = future.join();
+            } catch (CompletionException e) {
+                log.warn("prefetch id block failed, reserve synchronously, path: {}", path, e);
+            }
+        }
+        current = next!=null ? next : reserve(blockSize);
+    }
+
+    private void adaptBlockSize(Block exhausted) {
+        if (exhausted.end==exhausted.start) {
+            return;
+        }
+        long elapsed = System.currentTimeMillis() - exhausted.createdAt;
+        if (elapsed<targetBlockMillis / 2) {
+            blockSize = (int) Math.min(maxBlockSize, blockSize * 2L);
+        } else if (elapsed>targetBlockMillis * 2) {
+            blockSize = Math.max(minBlockSize, blockSize / 2);
+        }
+    }
+
+    /**
+     * 通过CAS预占号段
+     */
+    private Block reserve(int size) {
+        while (true) {
+            Stat stat = new Stat();
+            String value;
+            try {
+                value = curatorClient.getNodeData(path, stat);
+            } catch (CuratorClientException e) {
+                if (e.getCause() instanceof KeeperException.NoNodeException) {
+                    curatorClient.createNodeIfAbsent(CreateMode.PERSISTENT, path, "0");
+                    continue;
+                }
+                throw e;
+            }
+            long start;
+            try {
+                start = Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new CuratorClientException("计数节点数据不是数字：" + path, e);
+            }
+            if (curatorClient.compareAndSetNodeData(path, Long.toString(start + size), stat.getVersion())) {
+                return new Block(start, start + size);
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    private static final class Block {
+        final long start;
+        final long end;
+        final long prefetchAt;
+        final long createdAt = System.currentTimeMillis();
+        final AtomicLong cursor;
+
+        Block(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.prefetchAt = start + (end - start) * 3 / 4;
+            this.cursor = new AtomicLong(start);
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.zookeeper.CreateMode;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 集群限流器，各实例从全局配额中租用一部分在本地限流
+ * 协调节点保存全局每秒许可数，每个实例在 {path}/members 下注册临时节点并定期上报自己观测到的需求（每秒请求数）。
+ * 每个实例的配额 = 保底配额 + 剩余配额按需求比例分配；实例下线时临时节点消失，其配额在下一次重新分配时被其他实例收回。
+ * 缓存初始化完成之前不知道其他实例的需求，按创建时读到的实例数平均分配全局配额。
+ * tryAcquire()使用本地GCRA算法，只有一次CAS，不访问zookeeper。
+ */
+@Slf4j
+public class DistributedRateLimiter implements Closeable {
+
+    private static final String MEMBERS = "/members";
+
+    private final CuratorClientV510 curatorClient;
+    private final String path;
+    private final String memberPath;
+    private final double minShareRatio;
+    private final double burstSeconds;
+    /**
+     * 缓存初始化完成之前使用的配额
+     */
+    private final double initialShare;
+    private final CuratorCache cache;
+    private final ScheduledFuture<?> rebalanceTask;
+    private final LongAdder requested = new LongAdder();
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+    private volatile long intervalNanos = Long.MAX_VALUE;
+    private volatile long toleranceNanos;
+    private volatile double permitsPerSecond;
+    private volatile long reportedDemand = -1;
+    private volatile boolean initialized;
+    private long lastRebalanceAt = System.currentTimeMillis();
+
+    /**
+     * @param curatorClient          客户端
+     * @param path                   协调节点
+     * @param globalPermitsPerSecond 协调节点不存在时写入的全局每秒许可数，已存在时以节点数据为准
+     * @param minShareRatio          全局配额中平均分配给所有实例的保底比例，0~1
+     * @param burstSeconds           本地允许的突发量，以秒为单位的许可数
+     * @param rebalanceIntervalMs    重新分配配额的间隔
+     * @param scheduler              定时任务线程池
+     */
+    public DistributedRateLimiter(CuratorClientV510 curatorClient, String path, long globalPermitsPerSecond, double minShareRatio,
+                                  double burstSeconds, long rebalanceIntervalMs, ScheduledExecutorService scheduler) {
+        this.curatorClient = curatorClient;
+        this.path = path;
+        this.memberPath = path + MEMBERS + "/" + ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.minShareRatio = minShareRatio;
+        this.burstSeconds = burstSeconds;
+        curatorClient.createNodeIfAbsent(CreateMode.PERSISTENT, path, Long.toString(globalPermitsPerSecond));
+        curatorClient.createNodeIfAbsent(CreateMode.EPHEMERAL, memberPath, "0");
+        long global = parse(curatorClient.getNodeData(path), 0);
+        this.initialShare = (double) global / Math.max(1, curatorClient.getChildren(path + MEMBERS).size());
+        setRate(initialShare);
+        CuratorCacheListener listener = CuratorCacheListener.builder()
+                .forCreatesAndChanges((oldNode, node) -> rebalance())
+                .forDeletes(node -> rebalance())
+                .forInitialized(() -> {
+                    initialized = true;
+                    rebalance();
+                })
+                .build();
+        // 使用独立的缓存，关闭时不影响watch()复用的预热缓存
+        this.cache = CuratorCache.build(curatorClient.getClient(), path);
+        cache.listenable().addListener(listener);
+        cache.start();
+        this.rebalanceTask = scheduler.scheduleWithFixedDelay(this::tick, rebalanceIntervalMs, rebalanceIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 尝试获取一个许可
+     *
+     * @return true 获取成功
+     */
+    public boolean tryAcquire() {
+        requested.increment();
+        long interval = intervalNanos;
+        if (interval==Long.MAX_VALUE) {
+            return false;
+        }
+        long now = System.nanoTime();
+        while (true) {
+            long tat = theoreticalArrival.get();
+            if (tat - now>toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, Math.max(tat, now) + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前实例分到的每秒许可数
+     *
+     * @return 每秒许可数
+     */
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * 上报需求并重新分配配额；自己的成员节点因会话过期丢失时重新注册
+     */
+    private synchronized void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            long elapsed = Math.max(1, now - lastRebalanceAt);
+            lastRebalanceAt = now;
+            long demand = requested.sumThenReset() * 1000 / elapsed;
+            if (cache.get(memberPath).isPresent()) {
+                if (reportedDemand<0 || Math.abs(demand - reportedDemand)>Math.max(1, reportedDemand / 10)) {
+                    // 需求变化超过10%才上报，避免无意义的写入
+                    curatorClient.setNodeData(memberPath, Long.toString(demand));
+                    reportedDemand = demand;
+                }
+            } else {
+                curatorClient.createNodeIfAbsent(CreateMode.EPHEMERAL, memberPath, Long.toString(demand));
+                reportedDemand = demand;
+            }
+            rebalance();
+        } catch (Exception e) {
+            log.warn("rebalance rate limiter failed, path: {}", path, e);
+        }
+    }
+
+    private synchronized void rebalance() {
+        if (!initialized) {
+            // 缓存中的成员还不完整，按需求分配会高估自己的配额
+            setRate(initialShare);
+            return;
+        }
+        double global = cache.get(path).map(data -> parse(data, 0)).orElse(0L);
+        String prefix = path + MEMBERS + "/";
+        Map<String, Long> demands = new HashMap<>();
+        cache.stream().filter(data -> data.getPath().startsWith(prefix))
+                .forEach(data -> demands.put(data.getPath(), parse(data, 0)));
+        demands.putIfAbsent(memberPath, Math.max(0, reportedDemand));
+        int members = demands.size();
+        long totalDemand = demands.values().stream().mapToLong(Long::longValue).sum();
+        double share;
+        if (totalDemand==0) {
+            share = global / members;
+        } else {
+            double floor = global * minShareRatio / members;
+            share = floor + (global - floor * members) * demands.get(memberPath) / totalDemand;
+        }
+        setRate(share);
+    }
+
+    private void setRate(double rate) {
+        permitsPerSecond = rate;
+        if (rate<=0) {
+            intervalNanos = Long.MAX_VALUE;
+            return;
+        }
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        toleranceNanos = (long) (burstSeconds * TimeUnit.SECONDS.toNanos(1));
+        intervalNanos = Math.max(1, interval);
+    }
+
+    private long parse(ChildData data, long defaultValue) {
+        byte[] bytes = curatorClient.decompress(data).getData();
+        return bytes==null ? defaultValue : parse(new String(bytes, curatorClient.getNodeCharset()), defaultValue);
+    }
+
+    private static long parse(String value, long defaultValue) {
+        if (value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public void close() {
+        rebalanceTask.cancel(false);
+        cache.close();
+        // 连接中断时前台删除会阻塞关闭流程，guaranteed()的后台删除在重新连接后继续
+        try {
+            curatorClient.deleteNodeInBackground(memberPath);
+        } catch (CuratorClientException e) {
+            log.debug("delete rate limiter member failed, path: {}", memberPath, e);
+        }
+    }
+
+}
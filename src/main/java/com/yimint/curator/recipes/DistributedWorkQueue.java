@@ -0,0 +1,396 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 高吞吐的分布式工作队列，至少一次投递
+ * 条目分散保存在 {path}/b-{n} 多个桶节点下，单个桶的getChildren只返回队列的一部分。
+ * 生产者用multi-op一次写入一批PERSISTENT_SEQUENTIAL条目；消费者从随机的桶和随机的批次偏移开始，
+ * 用一个multi-op在 {path}/claims 下为一批条目创建临时认领节点，事务因部分条目已被认领而失败时逐条认领。
+ * 条目处理完后调用complete()在一个事务中删除条目和认领节点；消费者崩溃或会话过期时认领节点自动删除，条目重新可见。
+ * 本进程已认领的条目记录在本地，同一会话的多个线程不会重复认领；认领的结果因连接中断而不确定时，
+ * 以认领节点的会话id判断是否属于自己，条目不会丢失，但可能被投递多次。
+ * 桶内的条目名称在本地缓存，用完才重新列出，队列不保证严格FIFO。
+ */
+@Slf4j
+public class DistributedWorkQueue {
+
+    private static final String BUCKET_PREFIX = "/b-";
+    private static final String ITEM_PREFIX = "/i-";
+    private static final String CLAIMS = "/claims";
+    /**
+     * 单个事务的数据上限，需要小于jute.maxbuffer
+     */
+    private static final int MAX_BATCH_BYTES = 512 * 1024;
+
+    private final CuratorClientV510 curatorClient;
+    private final CuratorFramework client;
+    private final String path;
+    private final int batchSize;
+    private final List<Deque<String>> pending;
+    private final AtomicInteger nextBucket = new AtomicInteger();
+    /**
+     * 本进程正在认领或已认领、尚未完成的条目
+     */
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param curatorClient 客户端
+     * @param path          队列根节点
+     * @param buckets       桶数量
+     * @param batchSize     单个事务中的最大条目数
+     */
+    public DistributedWorkQueue(CuratorClientV510 curatorClient, String path, int buckets, int batchSize) {
+        this.curatorClient = curatorClient;
+        this.client = curatorClient.getClient();
+        this.path = path;
+        this.batchSize = batchSize;
+        this.pending = new ArrayList<>(buckets);
+        for (int i = 0; i<buckets; i++) {
+            curatorClient.createNodeIfAbsent(CreateMode.PERSISTENT, bucketPath(i), "");
+            pending.add(new ConcurrentLinkedDeque<>());
+        }
+        curatorClient.createNodeIfAbsent(CreateMode.PERSISTENT, path + CLAIMS, "");
+    }
+
+    /**
+     * 写入一个条目
+     *
+     * @param item 条目数据
+     */
+    public void offer(byte[] item) {
+        offerAll(Collections.singletonList(item));
+    }
+
+    /**
+     * 批量写入条目，每批在一个事务中提交，条目轮流写入各个桶
+     *
+     * @param items 条目数据
+     */
+    public void offerAll(List<byte[]> items) {
+        List<CuratorOp> ops = new ArrayList<>(Math.min(items.size(), batchSize));
+        int bytes = 0;
+        try {
+            for (byte[] item : items) {
+                if (!ops.isEmpty() && (ops.size()>=batchSize || bytes + item.length>MAX_BATCH_BYTES)) {
+                    curatorClient.transaction(path, ops);
+                    ops = new ArrayList<>(batchSize);
+                    bytes = 0;
+                }
+                int bucket = Math.floorMod(nextBucket.getAndIncrement(), pending.size());
+                ops.add(client.transactionOp().create().withMode(CreateMode.PERSISTENT_SEQUENTIAL)
+                        .forPath(bucketPath(bucket) + ITEM_PREFIX, item));
+                bytes += item.length;
+            }
+            if (!ops.isEmpty()) {
+                curatorClient.transaction(path, ops);
+            }
+        } catch (CuratorClientException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CuratorClientException("写入队列出错：" + path, e);
+        }
+    }
+
+    /**
+     * 认领最多max个条目，处理完后需要调用complete()，放弃处理时调用release()
+     *
+     * @param max 最大条目数
+     * @return 条目，队列为空时为空列表
+     */
+    public List<Item> poll(int max) {
+        List<Item> claimed = new ArrayList<>(max);
+        int start = ThreadLocalRandom.current().nextInt(pending.size());
+        try {
+            for (int i = 0; i<pending.size() && claimed.size()<max; i++) {
+                int bucket = (start + i) % pending.size();
+                // 每个桶最多重新列出一次，桶内的条目都已被认领时不会反复列出
+                boolean listed = false;
+                while (claimed.size()<max) {
+                    if (pending.get(bucket).isEmpty()) {
+                        if (listed) {
+                            break;
+                        }
+                        list(bucket);
+                        listed = true;
+                    }
+                    List<String> candidates = candidates(bucket, Math.min(batchSize, max - claimed.size()));
+                    if (candidates.isEmpty()) {
+                        break;
+                    }
+                    claimed.addAll(claim(candidates));
+                }
+            }
+        } catch (CuratorClientException e) {
+            // 已认领的条目放回队列，否则要等到会话结束才会重新可见
+            release(claimed);
+            throw e;
+        } catch (Exception e) {
+            release(claimed);
+            throw new CuratorClientException("读取队列出错：" + path, e);
+        }
+        return claimed;
+    }
+
+    /**
+     * 条目处理完成，从队列中删除
+     *
+     * @param items poll()返回的条目
+     */
+    public void complete(List<Item> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<CuratorOp> ops = new ArrayList<>(items.size() * 2);
+        try {
+            for (Item item : items) {
+                ops.add(client.transactionOp().delete().forPath(item.getPath()));
+                ops.add(client.transactionOp().delete().forPath(claimPath(item.getPath())));
+            }
+            curatorClient.transaction(path, ops);
+            items.forEach(item -> held.remove(item.getPath()));
+            return;
+        } catch (CuratorClientException e) {
+            if (!(e.getCause() instanceof KeeperException.NoNodeException)) {
+                throw e;
+            }
+            // 上一次提交已成功但响应因连接中断丢失，或会话过期后认领节点已被删除，返回NoNode；
+            // 逐条删除，不存在的视为已完成，认领节点只删除本会话创建的
+            log.debug("complete batch conflicted, fallback to single deletes, path: {}", path);
+        } catch (Exception e) {
+            throw new CuratorClientException("完成队列条目出错：" + path, e);
+        }
+        for (Item item : items) {
+            deleteIfExists(item.getPath());
+            deleteOwnClaim(item.getPath());
+            held.remove(item.getPath());
+        }
+    }
+
+    /**
+     * 条目处理完成，从队列中删除
+     *
+     * @param item poll()返回的条目
+     */
+    public void complete(Item item) {
+        complete(Collections.singletonList(item));
+    }
+
+    /**
+     * 放弃处理，条目重新对其他消费者可见
+     *
+     * @param items poll()返回的条目
+     */
+    public void release(List<Item> items) {
+        for (Item item : items) {
+            releaseClaim(item.getPath());
+        }
+    }
+
+    private void releaseClaim(String itemPath) {
+        try {
+            deleteOwnClaim(itemPath);
+            held.remove(itemPath);
+        } catch (CuratorClientException e) {
+            // 删除失败时认领节点在会话结束后删除
+            log.warn("release queue item failed, path: {}", itemPath, e);
+        }
+    }
+
+    /**
+     * 队列中的条目数（包括已认领未完成的条目），需要读取所有桶
+     *
+     * @return 条目数
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i<pending.size(); i++) {
+            Stat stat = new Stat();
+            curatorClient.getNodeData(bucketPath(i), stat);
+            size += stat.getNumChildren();
+        }
+        return size;
+    }
+
+    /**
+     * 重新列出桶，跳过已有认领节点的条目；从随机的批次偏移开始，避免多个消费者同时争抢桶头部的条目
+     */
+    private void list(int bucket) {
+        List<String> children = curatorClient.getChildren(bucketPath(bucket));
+        if (children.isEmpty()) {
+            return;
+        }
+        Set<String> claims = new HashSet<>(curatorClient.getChildren(path + CLAIMS));
+        Collections.sort(children);
+        int batches = (children.size() + batchSize - 1) / batchSize;
+        int offset = ThreadLocalRandom.current().nextInt(batches) * batchSize;
+        Deque<String> names = pending.get(bucket);
+        for (int i = 0; i<children.size(); i++) {
+            String itemPath = bucketPath(bucket) + "/" + children.get((offset + i) % children.size());
+            if (!claims.contains(claimName(itemPath))) {
+                names.add(itemPath);
+            }
+        }
+    }
+
+    /**
+     * 从本地缓存的条目名称中取出一批，跳过本进程已认领的条目
+     */
+    private List<String> candidates(int bucket, int count) {
+        Deque<String> names = pending.get(bucket);
+        List<String> candidates = new ArrayList<>(count);
+        String name;
+        while (candidates.size()<count && (name = names.pollFirst())!=null) {
+            if (held.add(name)) {
+                candidates.add(name);
+            }
+        }
+        return candidates;
+    }
+
+    private List<Item> claim(List<String> candidates) throws Exception {
+        List<String> paths = new ArrayList<>(candidates.size());
+        try {
+            claimAll(candidates, paths);
+            List<byte[]> data = paths.isEmpty() ? Collections.emptyList() : curatorClient.getDataAll(paths);
+            List<Item> items = new ArrayList<>(paths.size());
+            for (int i = 0; i<paths.size(); i++) {
+                if (data.get(i)==null) {
+                    // 条目在列出之后已被其他消费者完成
+                    deleteIfExists(claimPath(paths.get(i)));
+                    held.remove(paths.get(i));
+                } else {
+                    items.add(new Item(paths.get(i), data.get(i)));
+                }
+            }
+            return items;
+        } catch (Exception e) {
+            // 确定属于自己的认领节点立即删除；结果不确定的认领节点在会话结束后删除
+            paths.forEach(this::releaseClaim);
+            held.removeAll(candidates);
+            throw e;
+        }
+    }
+
+    private void claimAll(List<String> candidates, List<String> paths) throws Exception {
+        List<CuratorOp> ops = new ArrayList<>(candidates.size());
+        for (String candidate : candidates) {
+            ops.add(client.transactionOp().create().withMode(CreateMode.EPHEMERAL).forPath(claimPath(candidate)));
+        }
+        try {
+            curatorClient.transaction(path, ops);
+            paths.addAll(candidates);
+            return;
+        } catch (CuratorClientException e) {
+            if (!(e.getCause() instanceof KeeperException.NodeExistsException)) {
+                throw e;
+            }
+        }
+        log.debug("claim batch conflicted, fallback to single claims, path: {}", path);
+        for (String candidate : candidates) {
+            if (claimOne(candidate)) {
+                paths.add(candidate);
+            } else {
+                held.remove(candidate);
+            }
+        }
+    }
+
+    /**
+     * 认领单个条目；认领节点已存在时比较会话id，条目已在本地记录为本次认领，会话相同说明上一次请求的响应丢失
+     */
+    private boolean claimOne(String itemPath) throws Exception {
+        String claim = claimPath(itemPath);
+        if (curatorClient.createNodeIfAbsent(CreateMode.EPHEMERAL, claim, "")) {
+            return true;
+        }
+        Stat stat = new Stat();
+        try {
+            curatorClient.getNodeData(claim, stat);
+        } catch (CuratorClientException e) {
+            if (e.getCause() instanceof KeeperException.NoNodeException) {
+                // 认领者刚刚完成或放弃，留给下一次poll()
+                return false;
+            }
+            throw e;
+        }
+        return stat.getEphemeralOwner()==client.getZookeeperClient().getZooKeeper().getSessionId();
+    }
+
+    /**
+     * 删除本会话创建的认领节点；会话过期后条目可能已被其他消费者重新认领，其他会话的认领节点不删除
+     */
+    private void deleteOwnClaim(String itemPath) {
+        String claim = claimPath(itemPath);
+        Stat stat = new Stat();
+        try {
+            curatorClient.getNodeData(claim, stat);
+            if (stat.getEphemeralOwner()!=client.getZookeeperClient().getZooKeeper().getSessionId()) {
+                log.debug("claim owned by another session, skip delete, path: {}", claim);
+                return;
+            }
+            curatorClient.transaction(claim, Collections.singletonList(
+                    client.transactionOp().delete().withVersion(stat.getVersion()).forPath(claim)));
+        } catch (CuratorClientException e) {
+            if (!(e.getCause() instanceof KeeperException.NoNodeException || e.getCause() instanceof KeeperException.BadVersionException)) {
+                throw e;
+            }
+        } catch (Exception e) {
+            throw new CuratorClientException("删除认领节点出错：" + claim, e);
+        }
+    }
+
+    private void deleteIfExists(String nodePath) {
+        try {
+            curatorClient.deleteNode(nodePath, false);
+        } catch (CuratorClientException e) {
+            if (!(e.getCause() instanceof KeeperException.NoNodeException)) {
+                throw e;
+            }
+        }
+    }
+
+    private String bucketPath(int bucket) {
+        return path + BUCKET_PREFIX + bucket;
+    }
+
+    /**
+     * 条目对应的认领节点：{path}/claims/b-{n}-i-{sequence}
+     */
+    private String claimPath(String itemPath) {
+        return path + CLAIMS + "/" + claimName(itemPath);
+    }
+
+    private String claimName(String itemPath) {
+        return itemPath.substring(path.length() + 1).replace('/', '-');
+    }
+
+    /**
+     * 已认领的条目
+     */
+    @Data
+    public static class Item {
+        private final String path;
+        private final byte[] data;
+    }
+
+}
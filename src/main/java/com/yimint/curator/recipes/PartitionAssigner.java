@@ -0,0 +1,373 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import com.yimint.curator.exception.CuratorClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.CreateMode;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分区分配
+ * 每个进程在 {path}/members 下注册临时节点，所有成员用相同的一致性哈希环计算N个分区的目标归属，
+ * 成员变化时只有少量分区迁移。成员id最小的实例把完整的分配结果以JSON写入 {path}/assignment 供观察。
+ * 分区的实际归属由 {path}/claims/{partition} 临时节点决定，同一时刻只有一个会话能持有：
+ * 移交时旧成员先从本地快照中移除分区并通知监听器，再删除认领节点；新成员看到删除事件后才创建认领节点并开始拥有该分区。
+ * 连接挂起或丢失时立即放弃所有分区，重新连接后再按相同规则认领，因此任意时刻最多一个进程的owns(p)为true。
+ * owns()/ownsPartition()只读取本地的分区快照，不访问zookeeper。
+ */
+@Slf4j
+public class PartitionAssigner implements Closeable {
+
+    private static final String MEMBERS = "/members";
+    private static final String CLAIMS = "/claims";
+    private static final String ASSIGNMENT = "/assignment";
+    private static final long INIT_TIMEOUT_MS = 5000;
+
+    /**
+     * 分区变化监听器
+     */
+    public interface PartitionListener {
+        /**
+         * 本实例拥有的分区发生变化
+         * 回调返回之后才会删除被移除分区的认领节点，其他成员在此之前不会拥有这些分区
+         *
+         * @param added   新分配给本实例的分区
+         * @param removed 不再属于本实例的分区
+         */
+        void onAssignmentChanged(Set<Integer> added, Set<Integer> removed);
+    }
+
+    private final CuratorClientV510 curatorClient;
+    private final String path;
+    private final String memberId;
+    private final int partitions;
+    private final int virtualNodes;
+    private final CuratorCache cache;
+    private final ConnectionStateListener connectionListener = this::onStateChanged;
+    private final List<PartitionListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * 当前会话中由本实例创建、尚未删除的认领节点
+     */
+    private final BitSet claimed = new BitSet();
+    private volatile BitSet owned = new BitSet();
+    /**
+     * 保护owned的更新；rebalance()持有this时可能因zookeeper调用重试而阻塞，连接挂起时不能等待它
+     */
+    private final Object ownedLock = new Object();
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    /**
+     * @param curatorClient 客户端
+     * @param path          分配根节点
+     * @param partitions    分区数
+     * @param virtualNodes  每个成员在哈希环上的虚拟节点数
+     */
+    public PartitionAssigner(CuratorClientV510 curatorClient, String path, int partitions, int virtualNodes) {
+        this.curatorClient = curatorClient;
+        this.path = path;
+        this.partitions = partitions;
+        this.virtualNodes = virtualNodes;
+        this.memberId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.connected = curatorClient.getClient().getZookeeperClient().isConnected();
+        register();
+        CountDownLatch initialized = new CountDownLatch(1);
+        // 同时缓存成员和认领节点：认领节点删除后由目标成员接手
+        this.cache = CuratorCache.build(curatorClient.getClient(), path);
+        cache.listenable().addListener(CuratorCacheListener.builder()
+                .forCreates(node -> rebalance())
+                .forDeletes(node -> rebalance())
+                .forInitialized(() -> {
+                    initialized.countDown();
+                    rebalance();
+                })
+                .build());
+        curatorClient.getClient().getConnectionStateListenable().addListener(connectionListener);
+        cache.start();
+        try {
+            initialized.await(INIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void addListener(PartitionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 本实例是否拥有key所在的分区
+     *
+     * @param key key
+     * @return true 拥有
+     */
+    public boolean owns(String key) {
+        return owned.get(partitionOf(key));
+    }
+
+    /**
+     * 本实例是否拥有分区
+     *
+     * @param partition 分区
+     * @return true 拥有
+     */
+    public boolean ownsPartition(int partition) {
+        return owned.get(partition);
+    }
+
+    /**
+     * key所在的分区
+     *
+     * @param key key
+     * @return 分区
+     */
+    public int partitionOf(String key) {
+        int h = key.hashCode();
+        // 打散String.hashCode的低位
+        h ^= (h>>>16);
+        h *= 0x85ebca6b;
+        h ^= (h>>>13);
+        return Math.floorMod(h, partitions);
+    }
+
+    /**
+     * 本实例当前拥有的分区
+     *
+     * @return 分区集合
+     */
+    public Set<Integer> getOwnedPartitions() {
+        return toSet(owned);
+    }
+
+    public String getMemberId() {
+        return memberId;
+    }
+
+    private void register() {
+        curatorClient.createNodeIfAbsent(CreateMode.EPHEMERAL, path + MEMBERS + "/" + memberId, "");
+    }
+
+    private synchronized void rebalance() {
+        long sessionId = sessionId();
+        if (closed || !connected || sessionId==0) {
+            return;
+        }
+        String prefix = path + MEMBERS + "/";
+        TreeSet<String> members = new TreeSet<>();
+        cache.stream().filter(data -> data.getPath().startsWith(prefix))
+                .forEach(data -> members.add(data.getPath().substring(prefix.length())));
+        BitSet target = new BitSet(partitions);
+        if (members.contains(memberId)) {
+            ConsistentHashRing ring = new ConsistentHashRing(members, virtualNodes);
+            Map<String, List<Integer>> assignment = new TreeMap<>();
+            for (int p = 0; p<partitions; p++) {
+                String owner = ring.owner("partition-" + p);
+                assignment.computeIfAbsent(owner, k -> new ArrayList<>()).add(p);
+                if (memberId.equals(owner)) {
+                    target.set(p);
+                }
+            }
+            if (memberId.equals(members.first())) {
+                publish(assignment);
+            }
+        } else {
+            // 会话过期导致成员节点丢失，先放弃所有分区再重新注册
+            try {
+                register();
+            } catch (CuratorClientException e) {
+                log.warn("register partition member failed, path: {}", path, e);
+            }
+        }
+        // 先放弃不再属于本实例的分区，监听器返回后再删除认领节点
+        BitSet kept = (BitSet) owned.clone();
+        kept.and(target);
+        ((BitSet) kept.clone()).stream().filter(p -> !holds(p, sessionId)).forEach(kept::clear);
+        if (!setOwnedIfConnected(kept)) {
+            return;
+        }
+        BitSet release = new BitSet(partitions);
+        for (int p = 0; p<partitions; p++) {
+            if (!target.get(p) && holds(p, sessionId)) {
+                release.set(p);
+            }
+        }
+        release.stream().forEach(this::release);
+        BitSet next = (BitSet) kept.clone();
+        target.stream().filter(p -> !kept.get(p)).filter(p -> claim(p, sessionId)).forEach(next::set);
+        setOwnedIfConnected(next);
+    }
+
+    /**
+     * 认领分区，认领节点被其他成员持有时等待其删除事件
+     *
+     * @return true 本会话持有该分区的认领节点
+     */
+    private boolean claim(int partition, long sessionId) {
+        if (holds(partition, sessionId)) {
+            return true;
+        }
+        if (!connected) {
+            // 连接已挂起，不再逐个尝试，避免长时间阻塞
+            return false;
+        }
+        if (cache.get(claimPath(partition)).isPresent()) {
+            return false;
+        }
+        try {
+            if (curatorClient.createNodeIfAbsent(CreateMode.EPHEMERAL, claimPath(partition), memberId)) {
+                claimed.set(partition);
+                return true;
+            }
+        } catch (CuratorClientException e) {
+            log.warn("claim partition failed, path: {}, partition: {}", path, partition, e);
+        }
+        return false;
+    }
+
+    private void release(int partition) {
+        try {
+            curatorClient.deleteNode(claimPath(partition), false);
+            claimed.clear(partition);
+        } catch (CuratorClientException e) {
+            // 分区已从本地快照中移除，认领节点在重新连接后的下一次rebalance中再删除
+            log.warn("release partition failed, path: {}, partition: {}", path, partition, e);
+        }
+    }
+
+    /**
+     * 本会话是否持有认领节点：缓存中有该节点时以临时节点的会话id为准，缓存尚未收到时以本地创建记录为准
+     */
+    private boolean holds(int partition, long sessionId) {
+        ChildData data = cache.get(claimPath(partition)).orElse(null);
+        if (data!=null && data.getStat()!=null) {
+            return data.getStat().getEphemeralOwner()==sessionId;
+        }
+        return claimed.get(partition);
+    }
+
+    private long sessionId() {
+        try {
+            return curatorClient.getClient().getZookeeperClient().getZooKeeper().getSessionId();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private String claimPath(int partition) {
+        return path + CLAIMS + "/" + partition;
+    }
+
+    private void onStateChanged(CuratorFramework client, ConnectionState state) {
+        if (state==ConnectionState.SUSPENDED || state==ConnectionState.LOST) {
+            // 连接挂起期间会话可能已在服务端过期，其他成员可能已经认领，立即放弃所有分区，不等待进行中的rebalance()
+            connected = false;
+            synchronized (ownedLock) {
+                setOwned(new BitSet());
+            }
+            if (state==ConnectionState.LOST) {
+                synchronized (this) {
+                    claimed.clear();
+                }
+            }
+        } else if (state.isConnected()) {
+            synchronized (this) {
+                connected = true;
+            }
+            rebalance();
+        }
+    }
+
+    /**
+     * 仍然连接时才更新本地快照，连接挂起后到达的rebalance()结果被丢弃
+     */
+    private boolean setOwnedIfConnected(BitSet next) {
+        synchronized (ownedLock) {
+            if (!connected) {
+                return false;
+            }
+            setOwned(next);
+            return true;
+        }
+    }
+
+    private void setOwned(BitSet next) {
+        BitSet previous = owned;
+        owned = next;
+        notifyListeners(previous, next);
+    }
+
+    private void publish(Map<String, List<Integer>> assignment) {
+        try {
+            String assignmentPath = path + ASSIGNMENT;
+            curatorClient.createNodeIfAbsent(CreateMode.PERSISTENT, assignmentPath, "{}");
+            curatorClient.set(assignmentPath, assignment);
+        } catch (CuratorClientException e) {
+            log.warn("publish partition assignment failed, path: {}", path, e);
+        }
+    }
+
+    private void notifyListeners(BitSet previous, BitSet next) {
+        if (previous.equals(next) || listeners.isEmpty()) {
+            return;
+        }
+        BitSet added = (BitSet) next.clone();
+        added.andNot(previous);
+        BitSet removed = (BitSet) previous.clone();
+        removed.andNot(next);
+        Set<Integer> addedSet = toSet(added);
+        Set<Integer> removedSet = toSet(removed);
+        for (PartitionListener listener : listeners) {
+            try {
+                listener.onAssignmentChanged(addedSet, removedSet);
+            } catch (Exception e) {
+                log.error("partition listener failed", e);
+            }
+        }
+    }
+
+    private static Set<Integer> toSet(BitSet bits) {
+        Set<Integer> set = new TreeSet<>();
+        bits.stream().forEach(set::add);
+        return Collections.unmodifiableSet(set);
+    }
+
+    @Override
+    public void close() {
+        curatorClient.getClient().getConnectionStateListenable().removeListener(connectionListener);
+        synchronized (this) {
+            closed = true;
+            synchronized (ownedLock) {
+                setOwned(new BitSet());
+            }
+        }
+        cache.close();
+        // 后台删除，连接中断时不阻塞关闭，重新连接后继续删除
+        try {
+            claimed.stream().forEach(p -> curatorClient.deleteNodeInBackground(claimPath(p)));
+            curatorClient.deleteNodeInBackground(path + MEMBERS + "/" + memberId);
+        } catch (CuratorClientException e) {
+            log.debug("delete partition member failed, memberId: {}", memberId, e);
+        }
+    }
+
+}
@@ -0,0 +1,311 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.exception.CuratorClientException;
+import com.yimint.curator.jfr.FlightEvents;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+
+import java.io.Closeable;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地复用租约的分布式信号量
+ * 基于InterProcessSemaphoreV2，租约归还后不立即删除节点，而是放入本进程的空闲池，其他线程acquire()时直接复用，
+ * 常见的获取、归还路径不写zookeeper。空闲池中的租约在以下情况真正归还：
+ * 空闲超过指定时间；空闲池已满；其他进程正在等待（{path}/leases下的节点数超过最大租约数）；会话丢失后租约节点已失效。
+ * 空闲的租约仍然占用全局配额，进程内最多保留maxIdle个。
+ */
+@Slf4j
+public class PooledSemaphore implements Closeable {
+
+    private static final String LOCKS = "/locks";
+    private static final String LEASES = "/leases";
+    private static final long INIT_TIMEOUT_MS = 5000;
+
+    private final CuratorFramework client;
+    private final String path;
+    private final int maxLeases;
+    private final int maxIdle;
+    private final long idleTimeoutMs;
+    private final InterProcessSemaphoreV2 semaphore;
+    private final CuratorCache cache;
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledFuture<?> reapTask;
+    private final ConnectionStateListener connectionListener = this::onStateChanged;
+    private final Deque<Idle> idleLeases = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private volatile int waiting;
+    private volatile boolean closed;
+
+    /**
+     * @param client        会话
+     * @param path          信号量节点
+     * @param maxLeases     全局最大租约数
+     * @param maxIdle       本进程空闲池的最大租约数
+     * @param idleTimeoutMs 空闲超过该时间的租约归还给其他进程
+     * @param scheduler     定时任务线程池
+     */
+    public PooledSemaphore(CuratorFramework client, String path, int maxLeases, int maxIdle, long idleTimeoutMs,
+                           ScheduledExecutorService scheduler) {
+        if (maxLeases<1) {
+            throw new CuratorClientException("最大租约数必须大于0：" + maxLeases);
+        }
+        this.client = client;
+        this.path = path;
+        this.maxLeases = maxLeases;
+        this.maxIdle = Math.min(maxIdle, maxLeases);
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.scheduler = scheduler;
+        this.semaphore = new InterProcessSemaphoreV2(client, path, maxLeases);
+        CountDownLatch initialized = new CountDownLatch(1);
+        CuratorCacheListener listener = CuratorCacheListener.builder()
+                .forCreates(node -> onParticipantsChanged())
+                .forDeletes(node -> onParticipantsChanged())
+                .forInitialized(initialized::countDown)
+                .build();
+        this.cache = CuratorCache.build(client, path);
+        cache.listenable().addListener(listener);
+        cache.start();
+        try {
+            initialized.await(INIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        client.getConnectionStateListenable().addListener(connectionListener);
+        long interval = Math.max(10, idleTimeoutMs / 2);
+        this.reapTask = scheduler.scheduleWithFixedDelay(this::reap, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取一个租约，优先复用本进程空闲的租约，否则阻塞直到获取成功
+     *
+     * @return 租约，使用完后调用close()归还
+     */
+    public Lease acquire() {
+        Lease lease = acquire(-1, null);
+        if (lease==null) {
+            throw new CuratorClientException("获取信号量租约失败：" + path);
+        }
+        return lease;
+    }
+
+    /**
+     * 在等待时间内获取一个租约，优先复用本进程空闲的租约
+     *
+     * @param time 等待时间，小于0时一直等待
+     * @param unit 时间单位
+     * @return 租约，超时返回null
+     */
+    public Lease acquire(long time, TimeUnit unit) {
+        if (closed) {
+            throw new CuratorClientException("信号量已关闭：" + path);
+        }
+        Idle idle = pollIdle();
+        if (idle!=null) {
+            reused.increment();
+            return new PooledLease(idle.lease, idle.generation);
+        }
+        int current = generation.get();
+        Object event = FlightEvents.beginLockWait();
+        Lease lease = null;
+        try {
+            lease = time<0 ? semaphore.acquire() : semaphore.acquire(time, unit);
+        } catch (Exception e) {
+            throw new CuratorClientException("获取信号量租约失败：" + path, e);
+        } finally {
+            FlightEvents.endLockWait(event, path, getClass().getSimpleName(), lease!=null);
+        }
+        if (lease==null) {
+            return null;
+        }
+        created.increment();
+        return new PooledLease(lease, current);
+    }
+
+    private Idle pollIdle() {
+        Idle idle = idleLeases.pollFirst();
+        while (idle!=null) {
+            idleCount.decrementAndGet();
+            if (idle.generation==generation.get()) {
+                return idle;
+            }
+            // 会话丢失前放入空闲池的租约，节点已随会话删除
+            closeQuietly(idle.lease);
+            idle = idleLeases.pollFirst();
+        }
+        return null;
+    }
+
+    private void giveBack(PooledLease lease) {
+        if (!closed && waiting==0 && lease.generation==generation.get()) {
+            if (idleCount.incrementAndGet()<=maxIdle) {
+                // 后进先出：最近使用的租约先被复用，长时间空闲的留在队尾由reap()归还
+                idleLeases.offerFirst(new Idle(lease.delegate, lease.generation, System.currentTimeMillis()));
+                return;
+            }
+            idleCount.decrementAndGet();
+        }
+        closeQuietly(lease.delegate);
+    }
+
+    /**
+     * 归还空闲超时的租约
+     */
+    private void reap() {
+        try {
+            long now = System.currentTimeMillis();
+            Idle oldest = idleLeases.peekLast();
+            while (oldest!=null && now - oldest.since>=idleTimeoutMs) {
+                if (idleLeases.removeLastOccurrence(oldest)) {
+                    idleCount.decrementAndGet();
+                    closeQuietly(oldest.lease);
+                }
+                oldest = idleLeases.peekLast();
+            }
+        } catch (Exception e) {
+            log.warn("reap idle semaphore leases failed, path: {}", path, e);
+        }
+    }
+
+    /**
+     * 其他进程等待时让出空闲的租约：等待者已创建租约节点，此时租约节点数超过最大租约数，等待者的锁节点在{path}/locks下排队
+     */
+    private void onParticipantsChanged() {
+        String leasesPrefix = path + LEASES + "/";
+        String locksPrefix = path + LOCKS + "/";
+        long leases = cache.stream().filter(data -> data.getPath().startsWith(leasesPrefix)).count();
+        long locks = cache.stream().filter(data -> data.getPath().startsWith(locksPrefix)).count();
+        long excess = leases - maxLeases;
+        waiting = excess>0 ? (int) (excess + Math.max(0, locks - 1)) : 0;
+        if (waiting>0 && idleCount.get()>0 && !closed) {
+            // 删除节点是写操作，不占用缓存的事件线程
+            scheduler.execute(this::releaseIdle);
+        }
+    }
+
+    private void releaseIdle() {
+        for (int i = 0; i<waiting; i++) {
+            Idle idle = idleLeases.pollLast();
+            if (idle==null) {
+                return;
+            }
+            idleCount.decrementAndGet();
+            closeQuietly(idle.lease);
+        }
+    }
+
+    private void onStateChanged(CuratorFramework client, ConnectionState state) {
+        if (state==ConnectionState.LOST) {
+            // 临时的租约节点随会话删除，空闲池和使用中的租约都不能再复用
+            generation.incrementAndGet();
+            scheduler.execute(this::drain);
+        }
+    }
+
+    private void closeQuietly(Lease lease) {
+        try {
+            lease.close();
+        } catch (Exception e) {
+            log.warn("return semaphore lease failed, path: {}, node: {}", path, lease.getNodeName(), e);
+        }
+    }
+
+    /**
+     * 本进程空闲池中的租约数
+     */
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * 复用空闲租约的次数
+     */
+    public long getReusedCount() {
+        return reused.sum();
+    }
+
+    /**
+     * 从zookeeper新获取租约的次数
+     */
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        reapTask.cancel(false);
+        client.getConnectionStateListenable().removeListener(connectionListener);
+        cache.close();
+        drain();
+    }
+
+    private void drain() {
+        Idle idle;
+        while ((idle = idleLeases.pollFirst())!=null) {
+            idleCount.decrementAndGet();
+            closeQuietly(idle.lease);
+        }
+    }
+
+    /**
+     * 交给调用方的租约，close()时放回空闲池，重复close()只归还一次
+     */
+    private final class PooledLease implements Lease {
+        private final Lease delegate;
+        private final int generation;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        PooledLease(Lease delegate, int generation) {
+            this.delegate = delegate;
+            this.generation = generation;
+        }
+
+        @Override
+        public void close() {
+            if (returned.compareAndSet(false, true)) {
+                giveBack(this);
+            }
+        }
+
+        @Override
+        public byte[] getData() throws Exception {
+            return delegate.getData();
+        }
+
+        @Override
+        public String getNodeName() {
+            return delegate.getNodeName();
+        }
+    }
+
+    private static final class Idle {
+        final Lease lease;
+        final int generation;
+        final long since;
+
+        Idle(Lease lease, int generation, long since) {
+            this.lease = lease;
+            this.generation = generation;
+            this.since = since;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.yimint.curator.retry;
+
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.RetrySleeper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 受重试预算约束的重试策略，预算耗尽时直接放弃重试
+ * 先由被包装的策略决定是否重试（退避时间只记录不等待），允许重试时才申请预算，申请成功后再等待退避时间，
+ * 被包装的策略本身拒绝的重试不消耗预算。
+ * 只约束{@link RetryBudget#call}范围内的前台重试，请求数也只在该范围内统计；recipes、缓存和后台操作的重试不计入预算。
+ */
+public class BudgetedRetryPolicy implements RetryPolicy {
+
+    private final RetryPolicy delegate;
+    private final RetryBudget budget;
+
+    public BudgetedRetryPolicy(RetryPolicy delegate, RetryBudget budget) {
+        this.delegate = delegate;
+        this.budget = budget;
+    }
+
+    @Override
+    public boolean allowRetry(int retryCount, long elapsedTimeMs, RetrySleeper sleeper) {
+        if (!budget.isInScope()) {
+            return delegate.allowRetry(retryCount, elapsedTimeMs, sleeper);
+        }
+        long[] sleepNanos = new long[1];
+        if (!delegate.allowRetry(retryCount, elapsedTimeMs, (time, unit) -> sleepNanos[0] = unit.toNanos(time))) {
+            return false;
+        }
+        if (!budget.tryAcquireRetry()) {
+            return false;
+        }
+        try {
+            sleeper.sleepFor(sleepNanos[0], TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.yimint.curator.retry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 熔断器
+ * CLOSED：正常放行，窗口内请求数达到最小值且失败率超过阈值时打开；
+ * OPEN：直接拒绝请求，经过openDurationMs后进入HALF_OPEN；
+ * HALF_OPEN：只放行一个探测请求，成功则关闭，失败则重新打开。
+ */
+public class CircuitBreaker {
+
+    private static final int BUCKETS = 10;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final int minimumRequests;
+    private final long openDurationMs;
+    private final long windowMs;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile RollingCounter requests;
+    private volatile RollingCounter failures;
+
+    /**
+     * @param failureRateThreshold 失败率阈值，0~1
+     * @param minimumRequests      窗口内最少请求数，低于该值不计算失败率
+     * @param windowMs             统计窗口长度
+     * @param openDurationMs       打开状态持续时间
+     */
+    public CircuitBreaker(double failureRateThreshold, int minimumRequests, long windowMs, long openDurationMs) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumRequests = minimumRequests;
+        this.windowMs = windowMs;
+        this.openDurationMs = openDurationMs;
+        resetWindow();
+    }
+
+    /**
+     * 判断是否放行请求
+     *
+     * @return false 熔断中，应快速失败
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current==State.CLOSED) {
+            return true;
+        }
+        if (current==State.OPEN) {
+            if (System.currentTimeMillis() - openedAt.get()<openDurationMs) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        if (probing.compareAndSet(false, true)) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 记录一次成功的请求
+     */
+    public void onSuccess() {
+        if (state.get()==State.HALF_OPEN) {
+            resetWindow();
+            state.set(State.CLOSED);
+            probing.set(false);
+            return;
+        }
+        requests.increment();
+    }
+
+    /**
+     * 记录一次失败的请求
+     */
+    public void onFailure() {
+        if (state.get()==State.HALF_OPEN) {
+            open();
+            return;
+        }
+        requests.increment();
+        failures.increment();
+        long total = requests.sum();
+        if (total>=minimumRequests && failures.sum()>=total * failureRateThreshold) {
+            open();
+        }
+    }
+
+    private void open() {
+        openedAt.set(System.currentTimeMillis());
+        state.set(State.OPEN);
+        probing.set(false);
+    }
+
+    private void resetWindow() {
+        requests = new RollingCounter(windowMs, BUCKETS);
+        failures = new RollingCounter(windowMs, BUCKETS);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public double getFailureRate() {
+        long total = requests.sum();
+        return total==0 ? 0 : (double) failures.sum() / total;
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.yimint.curator.retry;
+
+import com.yimint.curator.client.Deadline;
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.RetrySleeper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 感知截止时间的重试策略
+ * 当前线程绑定了{@link Deadline}时，截止时间已到或退避时间超过剩余时间则不再重试。
+ * 前台操作的重试循环在调用线程中执行，因此可以读取到线程绑定的截止时间。
+ */
+public class DeadlineRetryPolicy implements RetryPolicy {
+
+    private final RetryPolicy delegate;
+
+    public DeadlineRetryPolicy(RetryPolicy delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean allowRetry(int retryCount, long elapsedTimeMs, RetrySleeper sleeper) {
+        Deadline deadline = Deadline.current();
+        if (deadline==null) {
+            return delegate.allowRetry(retryCount, elapsedTimeMs, sleeper);
+        }
+        if (deadline.isExpired()) {
+            return false;
+        }
+        boolean[] exceeded = new boolean[1];
+        boolean allowed = delegate.allowRetry(retryCount, elapsedTimeMs, (time, unit) -> {
+            if (unit.toNanos(time)>=deadline.remaining(TimeUnit.NANOSECONDS)) {
+                exceeded[0] = true;
+                return;
+            }
+            sleeper.sleepFor(time, unit);
+        });
+        return allowed && !exceeded[0];
+    }
+
+}
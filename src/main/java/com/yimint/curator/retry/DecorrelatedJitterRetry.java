@@ -0,0 +1,53 @@
+package com.yimint.curator.retry;
+
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.RetrySleeper;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 去相关抖动(decorrelated jitter)退避重试
+ * sleep = min(maxSleep, random(baseSleep, 上一次sleep * 3))，
+ * 与固定指数退避相比，不同客户端的重试时间点被打散，不会在zookeeper恢复瞬间同时涌入。
+ * 策略对象被所有操作共享，后台操作的重试也不在发起线程上执行，因此不保存上一次的sleep：
+ * 第retryCount次重试时从baseSleep开始重新抽样retryCount+1步得到本次sleep，分布与逐次递推相同，状态只属于当前操作。
+ */
+public class DecorrelatedJitterRetry implements RetryPolicy {
+
+    private final int baseSleepTimeMs;
+    private final int maxSleepTimeMs;
+    private final int maxRetries;
+
+    public DecorrelatedJitterRetry(int baseSleepTimeMs, int maxSleepTimeMs, int maxRetries) {
+        this.baseSleepTimeMs = baseSleepTimeMs;
+        this.maxSleepTimeMs = maxSleepTimeMs;
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public boolean allowRetry(int retryCount, long elapsedTimeMs, RetrySleeper sleeper) {
+        if (retryCount>=maxRetries) {
+            return false;
+        }
+        long sleepMs = getSleepTimeMs(retryCount);
+        try {
+            sleeper.sleepFor(sleepMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    long getSleepTimeMs(int retryCount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long sleepMs = baseSleepTimeMs;
+        for (int i = 0; i<=retryCount; i++) {
+            long upper = Math.max(baseSleepTimeMs + 1L, sleepMs * 3);
+            sleepMs = Math.min(maxSleepTimeMs, random.nextLong(baseSleepTimeMs, upper));
+        }
+        return sleepMs;
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.yimint.curator.retry;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程级重试预算
+ * 在滑动窗口内，重试次数不能超过请求数的一定比例（另有每秒最少可重试次数的保底），
+ * 避免zookeeper过载时整个集群的客户端同时放大重试流量。
+ * 请求和重试只在{@link #call}的范围内统计，两者的来源一致：范围内的前台操作计一次请求，其重试循环申请的重试计入预算。
+ */
+public class RetryBudget {
+
+    private static final int BUCKETS = 10;
+
+    private final double ratio;
+    private final long minRetries;
+    private final RollingCounter requests;
+    private final RollingCounter retries;
+    private final AtomicLong rejected = new AtomicLong();
+    private final ThreadLocal<Boolean> scope = new ThreadLocal<>();
+
+    /**
+     * @param ratio               窗口内允许的重试数占请求数的比例，例如0.1表示10%
+     * @param minRetriesPerSecond 每秒保底可重试次数，保证低流量时仍可重试
+     * @param windowMs            统计窗口长度
+     */
+    public RetryBudget(double ratio, int minRetriesPerSecond, long windowMs) {
+        this.ratio = ratio;
+        this.minRetries = Math.max(0, minRetriesPerSecond * windowMs / 1000);
+        this.requests = new RollingCounter(windowMs, BUCKETS);
+        this.retries = new RollingCounter(windowMs, BUCKETS);
+    }
+
+    /**
+     * 记录一次请求并在预算范围内执行，当前线程上的重试循环申请的重试计入本预算
+     *
+     * @param call 操作
+     * @return 操作结果
+     */
+    public <T> T call(Callable<T> call) throws Exception {
+        requests.increment();
+        if (scope.get()!=null) {
+            return call.call();
+        }
+        scope.set(Boolean.TRUE);
+        try {
+            return call.call();
+        } finally {
+            scope.remove();
+        }
+    }
+
+    /**
+     * 当前线程是否处于call()的范围内
+     *
+     * @return true 重试需要申请预算
+     */
+    public boolean isInScope() {
+        return scope.get()!=null;
+    }
+
+    /**
+     * 申请一次重试
+     *
+     * @return true 预算充足，允许重试
+     */
+    public boolean tryAcquireRetry() {
+        long allowed = Math.max(minRetries, (long) (requests.sum() * ratio));
+        if (retries.sum()>=allowed) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+}
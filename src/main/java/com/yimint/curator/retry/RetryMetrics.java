@@ -0,0 +1,40 @@
+package com.yimint.curator.retry;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 重试预算与熔断器的指标
+ */
+public class RetryMetrics implements MeterBinder {
+
+    private final RetryBudget retryBudget;
+    private final CircuitBreaker circuitBreaker;
+
+    public RetryMetrics(RetryBudget retryBudget, CircuitBreaker circuitBreaker) {
+        this.retryBudget = retryBudget;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (retryBudget!=null) {
+            Gauge.builder("curator.retry.budget.requests", retryBudget, RetryBudget::getRequests)
+                    .description("窗口内的请求数").register(registry);
+            Gauge.builder("curator.retry.budget.retries", retryBudget, RetryBudget::getRetries)
+                    .description("窗口内的重试数").register(registry);
+            Gauge.builder("curator.retry.budget.rejected", retryBudget, RetryBudget::getRejected)
+                    .description("因预算耗尽被拒绝的重试总数").register(registry);
+        }
+        if (circuitBreaker!=null) {
+            Gauge.builder("curator.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                    .description("熔断器状态：0 CLOSED，1 OPEN，2 HALF_OPEN").register(registry);
+            Gauge.builder("curator.circuit.failure.rate", circuitBreaker, CircuitBreaker::getFailureRate)
+                    .description("窗口内的失败率").register(registry);
+            Gauge.builder("curator.circuit.rejected", circuitBreaker, CircuitBreaker::getRejected)
+                    .description("熔断期间被拒绝的请求总数").register(registry);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.yimint.curator.retry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动时间窗口计数器
+ * 窗口被切分为若干个桶，过期的桶在下一次写入时清零；统计值允许在桶切换瞬间有少量误差。
+ */
+final class RollingCounter {
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray epochs;
+
+    RollingCounter(long windowMillis, int buckets) {
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.counts = new AtomicLongArray(buckets);
+        this.epochs = new AtomicLongArray(buckets);
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    void add(long delta) {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        int index = (int) (epoch % buckets);
+        long current = epochs.get(index);
+        if (current!=epoch && epochs.compareAndSet(index, current, epoch)) {
+            counts.set(index, 0);
+        }
+        counts.addAndGet(index, delta);
+    }
+
+    long sum() {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        long total = 0;
+        for (int i = 0; i<buckets; i++) {
+            if (epoch - epochs.get(i)<buckets) {
+                total += counts.get(i);
+            }
+        }
+        return total;
+    }
+
+}
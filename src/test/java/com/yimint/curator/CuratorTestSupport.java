@@ -0,0 +1,52 @@
+package com.yimint.curator;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingServer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 连接测试zookeeper的公共方法
+ * 使用TestingServer而不是EmbeddedZooKeeperServer：部分测试需要stop()服务端模拟连接中断，嵌入式服务端只能关闭
+ */
+public final class CuratorTestSupport {
+
+    private CuratorTestSupport() {
+    }
+
+    /**
+     * 创建客户端并等待连接成功
+     *
+     * @param server 测试服务端
+     * @return 已初始化的客户端，测试结束时需要stop()
+     */
+    public static CuratorClientV510 newClient(TestingServer server) throws InterruptedException {
+        CuratorClientV510 client = new CuratorClientV510(CuratorFrameworkFactory.builder()
+                .connectString(server.getConnectString())
+                .sessionTimeoutMs(30000)
+                .connectionTimeoutMs(3000)
+                .retryPolicy(new RetryNTimes(3, 100)), "utf8");
+        client.init();
+        assertTrue(client.getClient().blockUntilConnected(10, TimeUnit.SECONDS));
+        return client;
+    }
+
+    /**
+     * 等待条件成立，最多10秒
+     *
+     * @param condition 条件
+     */
+    public static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis()<deadline, "condition not met in 10s");
+            Thread.sleep(20);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.yimint.curator.client;
+
+import com.yimint.curator.exception.CuratorClientException;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.test.TestingServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static com.yimint.curator.CuratorTestSupport.await;
+import static com.yimint.curator.CuratorTestSupport.newClient;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedBlobStoreTests {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private TestingServer server;
+    private CuratorClientV510 curatorClient;
+    private CuratorFramework client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        curatorClient = newClient(server);
+        client = curatorClient.getClient();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        curatorClient.stop();
+        server.close();
+    }
+
+    @Test
+    public void testRoundTripAcrossChunks() throws Exception {
+        byte[] value = random(10500);
+        new ChunkedBlobStore(client, CHUNK_SIZE, 4).put("/blobs/a", value);
+        assertEquals(11, client.getChildren().forPath("/blobs/a").size());
+        // 另一个实例没有本地副本，并行读取所有分块
+        assertArrayEquals(value, new ChunkedBlobStore(client, CHUNK_SIZE, 4).get("/blobs/a"));
+    }
+
+    @Test
+    public void testManifestFlipReplacesGeneration() throws Exception {
+        ChunkedBlobStore writer = new ChunkedBlobStore(client, CHUNK_SIZE, 4);
+        ChunkedBlobStore reader = new ChunkedBlobStore(client, CHUNK_SIZE, 4);
+        writer.put("/blobs/flip", random(3000));
+        reader.get("/blobs/flip");
+
+        byte[] second = random(1500);
+        writer.put("/blobs/flip", second);
+        // 上一代分块在更新清单的同一个事务中删除，读取端的本地副本因sha256不一致而失效
+        List<String> chunks = client.getChildren().forPath("/blobs/flip");
+        assertEquals(2, chunks.size());
+        assertEquals(1, chunks.stream().map(ChunkedBlobStoreTests::generation).distinct().count());
+        assertArrayEquals(second, reader.get("/blobs/flip"));
+    }
+
+    @Test
+    public void testConflictingWriteCleansUpOrphanChunks() throws Exception {
+        byte[] first = random(2500);
+        new ChunkedBlobStore(client, CHUNK_SIZE, 4).put("/blobs/conflict", first);
+        List<String> before = children("/blobs/conflict");
+
+        // 提交事务之前其他客户端更新了清单，事务因版本不一致失败
+        ChunkedBlobStore conflicting = new ChunkedBlobStore(interceptTransaction(() ->
+                client.setData().forPath("/blobs/conflict", client.getData().forPath("/blobs/conflict"))), CHUNK_SIZE, 4);
+        assertThrows(CuratorClientException.class, () -> conflicting.put("/blobs/conflict", random(4500)));
+
+        // 新一代分块在后台删除，清单和上一代分块保持不变
+        await(() -> children("/blobs/conflict").equals(before));
+        assertArrayEquals(first, new ChunkedBlobStore(client, CHUNK_SIZE, 4).get("/blobs/conflict"));
+    }
+
+    private List<String> children(String path) {
+        try {
+            return client.getChildren().forPath(path).stream().sorted().collect(Collectors.toList());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 包装会话，每次发起事务前先执行指定操作
+     */
+    private CuratorFramework interceptTransaction(Interceptor interceptor) {
+        return (CuratorFramework) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{CuratorFramework.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("transaction")) {
+                        interceptor.run();
+                    }
+                    try {
+                        return method.invoke(client, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private interface Interceptor {
+        void run() throws Exception;
+    }
+
+    private static String generation(String chunk) {
+        return chunk.substring(0, chunk.lastIndexOf('-'));
+    }
+
+    private static byte[] random(int size) {
+        byte[] value = new byte[size];
+        new Random(size).nextBytes(value);
+        return value;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.yimint.curator.client;
+
+import com.yimint.curator.exception.CuratorClientException;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.yimint.curator.CuratorTestSupport.newClient;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineTests {
+
+    private TestingServer server;
+    private CuratorClientV510 curatorClient;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        curatorClient = newClient(server);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        curatorClient.stop();
+        server.close();
+    }
+
+    @Test
+    public void testNestedBindingKeepsEarlierDeadline() {
+        Deadline outer = Deadline.after(1, TimeUnit.SECONDS);
+        Deadline inner = Deadline.after(1, TimeUnit.HOURS);
+        outer.run(() -> inner.run(() -> assertSame(outer, Deadline.current())));
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    public void testOperationsWithinDeadline() {
+        Deadline deadline = Deadline.after(5, TimeUnit.SECONDS);
+        curatorClient.createNode(CreateMode.PERSISTENT, "/deadline/a", "1", deadline);
+        curatorClient.setNodeData("/deadline/a", "2", deadline);
+        assertEquals("2", curatorClient.getNodeData("/deadline/a", deadline));
+    }
+
+    @Test
+    public void testExpiredDeadlineFailsFast() {
+        Deadline expired = Deadline.after(0, TimeUnit.MILLISECONDS);
+        CuratorClientException e = assertThrows(CuratorClientException.class,
+                () -> curatorClient.getNodeData("/deadline/expired", expired));
+        assertTrue(e.getMessage().contains("已超过截止时间"), e.getMessage());
+    }
+
+    @Test
+    public void testDeadlineBoundsWaitWhileDisconnected() throws Exception {
+        curatorClient.createNode(CreateMode.PERSISTENT, "/deadline/disconnected", "1");
+        server.stop();
+        // 前台调用会在连接等待中阻塞connectionTimeoutMs(3000)，截止时间内的后台调用在截止时间到达时返回
+        Deadline deadline = Deadline.after(300, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        assertThrows(CuratorClientException.class, () -> curatorClient.getNodeData("/deadline/disconnected", deadline));
+        assertThrows(CuratorClientException.class, () -> curatorClient.setNodeData("/deadline/disconnected", "2", deadline));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)<2000);
+    }
+
+}
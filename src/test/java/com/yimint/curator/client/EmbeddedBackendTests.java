@@ -0,0 +1,89 @@
+package com.yimint.curator.client;
+
+import com.yimint.curator.actuate.CuratorReadinessStateHealthIndicator;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.zookeeper.CreateMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.annotation.Resource;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"curator-client.backend=embedded", "curator-client.warm-up.cache-paths=/embedded/warm"})
+class EmbeddedBackendTests {
+
+    @Resource
+    private CuratorClientV510 curatorClient;
+
+    @Resource
+    private CuratorWarmUp curatorWarmUp;
+
+    @Resource(name = "readinessStateHealthIndicator")
+    private HealthIndicator readinessStateHealthIndicator;
+
+    @Test
+    public void testNodeReadWrite() {
+        curatorClient.createNode(CreateMode.PERSISTENT, "/embedded/a", "1");
+        curatorClient.setNodeData("/embedded/a", "2");
+        assertEquals("2", curatorClient.getNodeData("/embedded/a"));
+        assertTrue(curatorClient.isExistNode("/embedded/a"));
+        curatorClient.deleteNode("/embedded/a");
+        assertFalse(curatorClient.isExistNode("/embedded/a"));
+    }
+
+    @Test
+    public void testMutexLock() {
+        InterProcessMutex lock = curatorClient.getMutexLock("/embedded/lock");
+        curatorClient.acquire(lock);
+        assertTrue(curatorClient.isAcquiredInThisProcess(lock));
+        curatorClient.release(lock);
+        assertFalse(curatorClient.isAcquiredInThisProcess(lock));
+    }
+
+    @Test
+    public void testReadinessWaitsForWarmUp() throws Exception {
+        assertInstanceOf(CuratorReadinessStateHealthIndicator.class, readinessStateHealthIndicator);
+        curatorWarmUp.getFuture().get(30, TimeUnit.SECONDS);
+        assertEquals(Status.UP, readinessStateHealthIndicator.health().getStatus());
+    }
+
+    @Test
+    public void testClosingSharedCacheKeepsOtherWatchers() throws Exception {
+        curatorWarmUp.getFuture().get(30, TimeUnit.SECONDS);
+        curatorClient.createNode(CreateMode.PERSISTENT, "/embedded/warm/a", "1");
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch replayed = new CountDownLatch(1);
+        CountDownLatch created = new CountDownLatch(1);
+        CuratorCache first = curatorClient.watch("/embedded/warm", CuratorCacheListener.builder().build());
+        CuratorCache second = curatorClient.watch("/embedded/warm", CuratorCacheListener.builder()
+                .forCreates(data -> {
+                    seen.add(data.getPath());
+                    if (data.getPath().equals("/embedded/warm/b")) {
+                        created.countDown();
+                    }
+                })
+                .forInitialized(replayed::countDown)
+                .build());
+        assertTrue(replayed.await(10, TimeUnit.SECONDS));
+        assertTrue(seen.contains("/embedded/warm/a"));
+        first.close();
+        curatorClient.createNode(CreateMode.PERSISTENT, "/embedded/warm/b", "2");
+        assertTrue(created.await(10, TimeUnit.SECONDS));
+        assertTrue(second.get("/embedded/warm/b").isPresent());
+        second.close();
+        curatorClient.deleteNode("/embedded/warm");
+    }
+
+}
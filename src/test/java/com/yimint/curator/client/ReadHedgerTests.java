@@ -0,0 +1,100 @@
+package com.yimint.curator.client;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingCluster;
+import org.apache.curator.test.TestingZooKeeperServer;
+import org.apache.zookeeper.server.quorum.QuorumPeer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.yimint.curator.CuratorTestSupport.await;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadHedgerTests {
+
+    private TestingCluster cluster;
+    private TestingZooKeeperServer primaryServer;
+    private CuratorFramework primary;
+    private CuratorFramework writer;
+    private ReadHedger hedger;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        cluster = new TestingCluster(3);
+        cluster.start();
+        // 主会话只连接一个follower，对冲会话和写入会话连接其他服务端，停止该follower不影响多数派
+        await(() -> followers().size()==2);
+        primaryServer = followers().get(0);
+        String others = cluster.getServers().stream().filter(server -> server!=primaryServer)
+                .map(server -> server.getInstanceSpec().getConnectString()).collect(Collectors.joining(","));
+        primary = newFramework(primaryServer.getInstanceSpec().getConnectString());
+        primary.start();
+        writer = newFramework(others);
+        writer.start();
+        assertTrue(primary.blockUntilConnected(10, TimeUnit.SECONDS));
+        assertTrue(writer.blockUntilConnected(10, TimeUnit.SECONDS));
+        hedger = new ReadHedger(primary, newFramework(others), 0.95, 200);
+        hedger.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        hedger.close();
+        primary.close();
+        writer.close();
+        cluster.close();
+    }
+
+    @Test
+    public void testFastReadNotHedged() throws Exception {
+        writer.create().forPath("/hedge-fast", bytes("1"));
+        primary.sync().forPath("/hedge-fast");
+        ChildData data = hedger.read("/hedge-fast").get(10, TimeUnit.SECONDS);
+        assertArrayEquals(bytes("1"), data.getData());
+        assertEquals(0, hedger.getHedgedCount());
+    }
+
+    @Test
+    public void testSlowPrimaryHedgedWithLatestWrite() throws Exception {
+        writer.create().forPath("/hedge-slow", bytes("1"));
+        primaryServer.kill();
+        // 主会话的请求等待重连，对冲请求先sync()再读取，能读到刚完成的写入
+        writer.setData().forPath("/hedge-slow", bytes("2"));
+        long start = System.nanoTime();
+        ChildData data = hedger.read("/hedge-slow").get(20, TimeUnit.SECONDS);
+        assertArrayEquals(bytes("2"), data.getData());
+        assertEquals(1, hedger.getHedgedCount());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)<3000);
+    }
+
+    private List<TestingZooKeeperServer> followers() {
+        return cluster.getServers().stream()
+                .filter(server -> server.getQuorumPeer().getPeerState()==QuorumPeer.ServerState.FOLLOWING)
+                .collect(Collectors.toList());
+    }
+
+    private static CuratorFramework newFramework(String connectString) {
+        return CuratorFrameworkFactory.builder()
+                .connectString(connectString)
+                .sessionTimeoutMs(30000)
+                .connectionTimeoutMs(5000)
+                .retryPolicy(new RetryNTimes(3, 100))
+                .build();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.yimint.curator.client;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.yimint.curator.CuratorTestSupport.newClient;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuspendedWriteBufferTests {
+
+    private TestingServer server;
+    private CuratorClientV510 curatorClient;
+    private CuratorFramework client;
+    private SuspendedWriteBuffer buffer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        curatorClient = newClient(server);
+        client = curatorClient.getClient();
+        // 连接状态由测试直接驱动，重放仍然发往真实的服务端
+        buffer = new SuspendedWriteBuffer(client, 10, 2, 0, SuspendedWriteBuffer.LostPolicy.FAIL);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        buffer.close();
+        curatorClient.stop();
+        server.close();
+    }
+
+    @Test
+    public void testWritesGoDirectWhenConnected() {
+        assertNull(buffer.offerSet("/buffer/direct", bytes("1")));
+        assertFalse(buffer.isBuffering());
+    }
+
+    @Test
+    public void testReplayAfterReconnect() throws Exception {
+        buffer.onStateChanged(ConnectionState.SUSPENDED);
+        CompletableFuture<Void> create = buffer.offerCreate(CreateMode.PERSISTENT, "/buffer/replay", bytes("1"));
+        CompletableFuture<Void> set = buffer.offerSet("/buffer/replay", bytes("2"));
+        CompletableFuture<Void> delete = buffer.offerDelete("/buffer/missing", false, true);
+        assertEquals(3, buffer.size());
+        assertFalse(create.isDone() || set.isDone() || delete.isDone());
+
+        buffer.onStateChanged(ConnectionState.RECONNECTED);
+        CompletableFuture.allOf(create, set, delete).get(10, TimeUnit.SECONDS);
+        // 父节点不存在、删除的节点不存在时事务失败，逐条重放容忍这些冲突，顺序不变
+        assertArrayEquals(bytes("2"), client.getData().forPath("/buffer/replay"));
+        assertEquals(3, buffer.getReplayedCount());
+        assertEquals(0, buffer.getFailedCount());
+        assertEquals(0, buffer.size());
+        assertFalse(buffer.isBuffering());
+    }
+
+    @Test
+    public void testLostDropsWritesExceptGuaranteedDeletes() throws Exception {
+        client.create().forPath("/buffer-lost", bytes("0"));
+        buffer.onStateChanged(ConnectionState.SUSPENDED);
+        CompletableFuture<Void> set = buffer.offerSet("/buffer-lost", bytes("1"));
+        CompletableFuture<Void> delete = buffer.offerDelete("/buffer-lost", false, true);
+
+        buffer.onStateChanged(ConnectionState.LOST);
+        assertTrue(set.isCompletedExceptionally());
+        assertFalse(delete.isDone());
+        assertEquals(1, buffer.size());
+        assertEquals(1, buffer.getFailedCount());
+
+        buffer.onStateChanged(ConnectionState.RECONNECTED);
+        delete.get(10, TimeUnit.SECONDS);
+        assertNull(client.checkExists().forPath("/buffer-lost"));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
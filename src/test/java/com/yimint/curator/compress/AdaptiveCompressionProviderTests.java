@@ -0,0 +1,79 @@
+package com.yimint.curator.compress;
+
+import com.yimint.curator.exception.CuratorClientException;
+import org.apache.curator.framework.imps.GzipCompressionProvider;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveCompressionProviderTests {
+
+    private final AdaptiveCompressionProvider provider = new AdaptiveCompressionProvider(64, 6,
+            Collections.emptyList(), Collections.singletonList("/raw"), 2);
+
+    @Test
+    public void testSmallValueStaysRaw() {
+        byte[] data = "small".getBytes(StandardCharsets.UTF_8);
+        assertSame(data, provider.compress("/a", data));
+        assertSame(data, provider.decompress("/a", data));
+    }
+
+    @Test
+    public void testLargeValueRoundTrip() {
+        byte[] data = repeat("routing-table-entry;", 200);
+        byte[] compressed = provider.compress("/a", data);
+        assertTrue(compressed.length<data.length);
+        assertArrayEquals(data, provider.decompress("/a", compressed));
+        assertTrue(provider.getBytesSaved()>0);
+    }
+
+    @Test
+    public void testExcludedPathStaysRaw() {
+        byte[] data = repeat("x", 1000);
+        assertSame(data, provider.compress("/raw/a", data));
+    }
+
+    @Test
+    public void testRawValueWithMagicPrefix() {
+        byte[] data = new byte[]{(byte) 0xC7, (byte) 0x5A, 1, 2, 3};
+        byte[] stored = provider.compress("/a", data);
+        assertArrayEquals(data, provider.decompress("/a", stored));
+    }
+
+    @Test
+    public void testRawValueWithGzipPrefix() throws Exception {
+        // 写入时已经是gzip格式的数据按原样读回，不会被解压
+        byte[] data = new GzipCompressionProvider().compress("/a", repeat("payload", 5));
+        byte[] stored = provider.compress("/raw/a", data);
+        assertArrayEquals(data, provider.decompress("/raw/a", stored));
+    }
+
+    @Test
+    public void testRejectsForgedOriginalLength() {
+        byte[] forged = new byte[]{(byte) 0xC7, (byte) 0x5A, 1, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x78, (byte) 0x9C};
+        assertThrows(CuratorClientException.class, () -> provider.decompress("/a", forged));
+    }
+
+    @Test
+    public void testReadsGzipData() throws Exception {
+        byte[] data = repeat("legacy", 100);
+        byte[] gzipped = new GzipCompressionProvider().compress("/a", data);
+        assertArrayEquals(data, provider.decompress("/a", gzipped));
+    }
+
+    private static byte[] repeat(String value, int times) {
+        byte[] unit = value.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[unit.length * times];
+        for (int i = 0; i<times; i++) {
+            System.arraycopy(unit, 0, result, i * unit.length, unit.length);
+        }
+        return result;
+    }
+
+}
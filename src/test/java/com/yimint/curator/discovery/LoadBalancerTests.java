@@ -0,0 +1,90 @@
+package com.yimint.curator.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadBalancerTests {
+
+    @Test
+    public void testRoundRobinVisitsEveryInstance() {
+        List<ServiceInstance> instances = instances("a", "b", "c");
+        RoundRobinLoadBalancer balancer = new RoundRobinLoadBalancer();
+        List<String> chosen = new ArrayList<>();
+        for (int i = 0; i<6; i++) {
+            chosen.add(balancer.choose(instances).getId());
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "a", "b", "c"), chosen);
+    }
+
+    @Test
+    public void testWeightedSkipsZeroWeight() {
+        List<ServiceInstance> instances = instances("a", "b", "c");
+        instances.get(0).setWeight(3);
+        instances.get(1).setWeight(0);
+        instances.get(2).setWeight(1);
+        List<ServiceInstance> snapshot = Collections.unmodifiableList(instances);
+        WeightedLoadBalancer balancer = new WeightedLoadBalancer();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i<4000; i++) {
+            counts.merge(balancer.choose(snapshot).getId(), 1, Integer::sum);
+        }
+        assertEquals(0, counts.getOrDefault("b", 0));
+        // 权重3:1，允许较大的随机误差
+        assertTrue(counts.get("a")>counts.get("c") * 2, "weights not respected: " + counts);
+    }
+
+    @Test
+    public void testLeastOutstandingAvoidsBusyInstance() {
+        List<ServiceInstance> instances = instances("a", "b");
+        LeastOutstandingLoadBalancer balancer = new LeastOutstandingLoadBalancer();
+        ServiceInstance busy = balancer.choose(instances);
+        // 两个实例时每次都比较两者，未释放的实例不会再被选中
+        for (int i = 0; i<10; i++) {
+            ServiceInstance chosen = balancer.choose(instances);
+            assertNotEquals(busy.getId(), chosen.getId());
+            balancer.release(chosen);
+        }
+        assertEquals(1, balancer.getOutstanding(busy));
+    }
+
+    @Test
+    public void testLeastOutstandingPrunesRemovedInstances() {
+        List<ServiceInstance> before = instances("a", "b");
+        LeastOutstandingLoadBalancer balancer = new LeastOutstandingLoadBalancer();
+        ServiceInstance inFlight = balancer.choose(before);
+        ServiceInstance idle = before.get(0)==inFlight ? before.get(1) : before.get(0);
+        balancer.release(balancer.choose(before));
+
+        // 下线的实例：没有未完成请求的立即清理，仍有未完成请求的在释放时清理
+        List<ServiceInstance> after = instances("c");
+        balancer.release(balancer.choose(after));
+        assertEquals(0, balancer.getOutstanding(idle));
+        assertEquals(1, balancer.getOutstanding(inFlight));
+        balancer.release(inFlight);
+        assertEquals(0, balancer.getOutstanding(inFlight));
+        balancer.release(inFlight);
+        assertEquals(0, balancer.getOutstanding(inFlight));
+    }
+
+    private static List<ServiceInstance> instances(String... ids) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (String id : ids) {
+            ServiceInstance instance = new ServiceInstance();
+            instance.setId(id);
+            instance.setName("service");
+            instances.add(instance);
+        }
+        return instances;
+    }
+
+}
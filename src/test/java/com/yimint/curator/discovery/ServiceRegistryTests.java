@@ -0,0 +1,97 @@
+package com.yimint.curator.discovery;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.yimint.curator.CuratorTestSupport.await;
+import static com.yimint.curator.CuratorTestSupport.newClient;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceRegistryTests {
+
+    private TestingServer server;
+    private CuratorClientV510 provider;
+    private CuratorClientV510 consumer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        provider = newClient(server);
+        consumer = newClient(server);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        provider.stop();
+        consumer.stop();
+        server.close();
+    }
+
+    @Test
+    public void testReRegisteredWhenNodeDeleted() throws Exception {
+        ServiceRegistry registry = provider.getServiceRegistry("/services/deleted");
+        registry.register(instance("api"));
+        ServiceRegistry discovery = consumer.getServiceRegistry("/services/deleted");
+        await(() -> discovery.getInstances("api").size()==1);
+        String id = discovery.getInstances("api").get(0).getId();
+
+        // 连接正常时自己的节点被其他客户端删除，注册端重新创建
+        consumer.deleteNode("/services/deleted/api/" + id, false);
+        await(() -> consumer.isExistNode("/services/deleted/api/" + id));
+        await(() -> discovery.getInstances("api").size()==1);
+    }
+
+    @Test
+    public void testReRegisteredAfterSessionExpired() throws Exception {
+        ServiceRegistry registry = provider.getServiceRegistry("/services/expired");
+        registry.register(instance("api"));
+        ServiceRegistry discovery = consumer.getServiceRegistry("/services/expired");
+        await(() -> discovery.getInstances("api").size()==1);
+        ZooKeeper zooKeeper = provider.getClient().getZookeeperClient().getZooKeeper();
+        long session = zooKeeper.getSessionId();
+
+        // 用同一个会话id连接后关闭，服务端结束该会话并删除其临时节点
+        CountDownLatch connected = new CountDownLatch(1);
+        ZooKeeper duplicate = new ZooKeeper(server.getConnectString(), 30000, event -> {
+            if (event.getState()==Watcher.Event.KeeperState.SyncConnected) {
+                connected.countDown();
+            }
+        }, session, zooKeeper.getSessionPasswd());
+        assertTrue(connected.await(10, TimeUnit.SECONDS));
+        duplicate.close();
+        await(() -> sessionId(provider)!=session && discovery.getInstances("api").size()==1);
+        String id = discovery.getInstances("api").get(0).getId();
+        await(() -> consumer.isExistNode("/services/expired/api/" + id));
+        assertEquals(sessionId(provider), ownerOf("/services/expired/api/" + id));
+    }
+
+    private long ownerOf(String path) throws Exception {
+        return consumer.getClient().checkExists().forPath(path).getEphemeralOwner();
+    }
+
+    private static long sessionId(CuratorClientV510 client) {
+        try {
+            return client.getClient().getZookeeperClient().getZooKeeper().getSessionId();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static ServiceInstance instance(String name) {
+        ServiceInstance instance = new ServiceInstance();
+        instance.setName(name);
+        instance.setHost("127.0.0.1");
+        instance.setPort(8080);
+        return instance;
+    }
+
+}
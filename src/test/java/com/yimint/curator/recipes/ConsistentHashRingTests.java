@@ -0,0 +1,36 @@
+package com.yimint.curator.recipes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTests {
+
+    private static final int PARTITIONS = 1024;
+
+    @Test
+    public void testEmptyRing() {
+        assertNull(new ConsistentHashRing(Arrays.asList(), 160).owner("partition-0"));
+    }
+
+    @Test
+    public void testAddingMemberMovesFewPartitions() {
+        ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 160);
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d", "e"), 160);
+        int moved = 0;
+        for (int p = 0; p<PARTITIONS; p++) {
+            String owner = after.owner("partition-" + p);
+            if (!owner.equals(before.owner("partition-" + p))) {
+                // 只允许迁移到新成员
+                assertEquals("e", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved>PARTITIONS / 10 && moved<PARTITIONS * 3 / 10, "moved: " + moved);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.test.TestingServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.yimint.curator.CuratorTestSupport.newClient;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DistributedCounterTests {
+
+    private TestingServer server;
+    private CuratorClientV510 first;
+    private CuratorClientV510 second;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        first = newClient(server);
+        second = newClient(server);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+        server.close();
+    }
+
+    @Test
+    public void testExistingValueLoadedOnCreate() {
+        DistributedCounter counter = first.getCounter("/counters/load", 60000);
+        counter.add(42);
+        counter.flush();
+        assertEquals(42, second.getCounter("/counters/load", 60000).get());
+    }
+
+    @Test
+    public void testIdleFlushRefreshesGlobalValue() {
+        DistributedCounter a = first.getCounter("/counters/refresh", 60000);
+        DistributedCounter b = second.getCounter("/counters/refresh", 60000);
+        for (int i = 0; i<5; i++) {
+            a.increment();
+            b.add(2);
+            a.flush();
+            b.flush();
+        }
+        a.flush();
+        assertEquals(15, a.get());
+        assertEquals(15, b.get());
+    }
+
+}
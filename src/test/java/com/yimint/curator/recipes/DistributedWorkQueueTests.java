@@ -0,0 +1,80 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.test.TestingServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.yimint.curator.CuratorTestSupport.newClient;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistributedWorkQueueTests {
+
+    private TestingServer server;
+    private CuratorClientV510 producer;
+    private CuratorClientV510 consumer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        producer = newClient(server);
+        consumer = newClient(server);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        producer.stop();
+        consumer.stop();
+        server.close();
+    }
+
+    @Test
+    public void testEachItemDeliveredOnce() {
+        DistributedWorkQueue queue = producer.getWorkQueue("/queues/once", 4, 10);
+        queue.offerAll(items(100));
+        Set<String> received = new HashSet<>();
+        List<DistributedWorkQueue.Item> batch;
+        while (!(batch = consumer.getWorkQueue("/queues/once", 4, 10).poll(30)).isEmpty()) {
+            batch.forEach(item -> assertTrue(received.add(new String(item.getData(), StandardCharsets.UTF_8))));
+            consumer.getWorkQueue("/queues/once", 4, 10).complete(batch);
+        }
+        assertEquals(100, received.size());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testClaimedItemsRedeliveredAfterConsumerCrash() throws Exception {
+        DistributedWorkQueue queue = producer.getWorkQueue("/queues/crash", 2, 10);
+        queue.offerAll(items(10));
+        assertEquals(10, consumer.getWorkQueue("/queues/crash", 2, 10).poll(10).size());
+        // 其他消费者看不到已认领的条目
+        assertTrue(queue.poll(10).isEmpty());
+        // 消费者未完成就退出，认领节点随会话删除
+        consumer.getClient().close();
+        List<DistributedWorkQueue.Item> redelivered = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (redelivered.size()<10 && System.currentTimeMillis()<deadline) {
+            redelivered.addAll(queue.poll(10));
+        }
+        assertEquals(10, redelivered.size());
+        queue.complete(redelivered);
+        assertEquals(0, queue.size());
+    }
+
+    private static List<byte[]> items(int count) {
+        List<byte[]> items = new ArrayList<>(count);
+        for (int i = 0; i<count; i++) {
+            items.add(("item-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return items;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.test.TestingServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static com.yimint.curator.CuratorTestSupport.await;
+import static com.yimint.curator.CuratorTestSupport.newClient;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionAssignerTests {
+
+    private static final int PARTITIONS = 64;
+
+    private TestingServer server;
+    private CuratorClientV510 first;
+    private CuratorClientV510 second;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        first = newClient(server);
+        second = newClient(server);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+        server.close();
+    }
+
+    @Test
+    public void testPartitionsNeverOwnedTwice() throws Exception {
+        PartitionAssigner a = first.getPartitionAssigner("/partitions/handoff", PARTITIONS);
+        await(() -> a.getOwnedPartitions().size()==PARTITIONS);
+        PartitionAssigner b = second.getPartitionAssigner("/partitions/handoff", PARTITIONS);
+        long deadline = System.currentTimeMillis() + 10000;
+        boolean converged = false;
+        while (!converged && System.currentTimeMillis()<deadline) {
+            // 分区只会从a移交给b：先读b，b拥有的分区此时a必然已经放弃
+            BitSet ownedByB = bits(b);
+            BitSet ownedByA = bits(a);
+            assertFalse(ownedByA.intersects(ownedByB), "partition owned by both members");
+            ownedByA.or(ownedByB);
+            converged = ownedByA.cardinality()==PARTITIONS && !b.getOwnedPartitions().isEmpty()
+                    && !a.getOwnedPartitions().isEmpty();
+        }
+        assertTrue(converged, "partitions not split between members");
+    }
+
+    @Test
+    public void testOwnershipDroppedWhenDisconnected() throws Exception {
+        PartitionAssigner a = first.getPartitionAssigner("/partitions/suspend", PARTITIONS);
+        await(() -> a.getOwnedPartitions().size()==PARTITIONS);
+        server.stop();
+        await(() -> a.getOwnedPartitions().isEmpty());
+    }
+
+    private static BitSet bits(PartitionAssigner assigner) {
+        BitSet bits = new BitSet(PARTITIONS);
+        assigner.getOwnedPartitions().forEach(bits::set);
+        return bits;
+    }
+
+}
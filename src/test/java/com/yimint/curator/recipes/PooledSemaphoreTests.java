@@ -0,0 +1,85 @@
+package com.yimint.curator.recipes;
+
+import com.yimint.curator.client.CuratorClientV510;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.test.TestingServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.yimint.curator.CuratorTestSupport.await;
+import static com.yimint.curator.CuratorTestSupport.newClient;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class PooledSemaphoreTests {
+
+    private TestingServer server;
+    private CuratorClientV510 first;
+    private CuratorClientV510 second;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        first = newClient(server);
+        second = newClient(server);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+        server.close();
+    }
+
+    @Test
+    public void testIdleLeaseReused() throws Exception {
+        PooledSemaphore semaphore = first.getPooledSemaphore("/semaphores/reuse", 2, 2, 60000);
+        Lease lease = semaphore.acquire();
+        String node = lease.getNodeName();
+        lease.close();
+        assertEquals(1, semaphore.getIdleCount());
+
+        // 同一个租约节点被复用，没有新建节点
+        Lease reused = semaphore.acquire();
+        assertEquals(node, reused.getNodeName());
+        assertEquals(1, semaphore.getReusedCount());
+        assertEquals(1, semaphore.getCreatedCount());
+        assertEquals(1, leaseNodes("/semaphores/reuse"));
+        reused.close();
+        reused.close();
+        assertEquals(1, semaphore.getIdleCount());
+    }
+
+    @Test
+    public void testIdleLeaseReturnedAfterTimeout() throws Exception {
+        PooledSemaphore semaphore = first.getPooledSemaphore("/semaphores/timeout", 2, 2, 100);
+        semaphore.acquire().close();
+        await(() -> semaphore.getIdleCount()==0 && leaseNodes("/semaphores/timeout")==0);
+    }
+
+    @Test
+    public void testIdleLeaseReleasedWhenOtherProcessWaits() throws Exception {
+        PooledSemaphore owner = first.getPooledSemaphore("/semaphores/waiter", 1, 1, 60000);
+        owner.acquire().close();
+        assertEquals(1, owner.getIdleCount());
+
+        // 唯一的租约在另一个进程的空闲池中，等待者出现后被归还
+        PooledSemaphore waiter = second.getPooledSemaphore("/semaphores/waiter", 1, 1, 60000);
+        Lease lease = waiter.acquire(10, TimeUnit.SECONDS);
+        assertNotNull(lease);
+        assertEquals(0, owner.getIdleCount());
+        lease.close();
+    }
+
+    private int leaseNodes(String path) {
+        try {
+            return first.getClient().getChildren().forPath(path + "/leases").size();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
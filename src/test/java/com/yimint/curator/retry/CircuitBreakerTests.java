@@ -0,0 +1,68 @@
+package com.yimint.curator.retry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+
+    private static final long OPEN_DURATION_MS = 50;
+
+    private final CircuitBreaker breaker = new CircuitBreaker(0.5, 4, 10000, OPEN_DURATION_MS);
+
+    @Test
+    public void testStaysClosedBelowMinimumRequests() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testOpensAndRejectsWhenFailureRateExceeded() {
+        trip();
+        assertFalse(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        assertEquals(2, breaker.getRejected());
+    }
+
+    @Test
+    public void testHalfOpenProbeSuccessCloses() throws InterruptedException {
+        trip();
+        Thread.sleep(OPEN_DURATION_MS * 2);
+        // 只放行一个探测请求
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testHalfOpenProbeFailureReopens() throws InterruptedException {
+        trip();
+        Thread.sleep(OPEN_DURATION_MS * 2);
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        // 重新打开后再经过openDurationMs才会再次探测
+        Thread.sleep(OPEN_DURATION_MS * 2);
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void trip() {
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.yimint.curator.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecorrelatedJitterRetryTests {
+
+    @Test
+    public void testSleepWithinBounds() {
+        DecorrelatedJitterRetry retry = new DecorrelatedJitterRetry(100, 1000, 10);
+        for (int retryCount = 0; retryCount<10; retryCount++) {
+            for (int i = 0; i<200; i++) {
+                long sleepMs = retry.getSleepTimeMs(retryCount);
+                assertTrue(sleepMs>=100 && sleepMs<=1000, "sleep out of bounds: " + sleepMs);
+            }
+        }
+    }
+
+    @Test
+    public void testFirstRetryBelowThreeTimesBase() {
+        DecorrelatedJitterRetry retry = new DecorrelatedJitterRetry(100, 10000, 10);
+        for (int i = 0; i<200; i++) {
+            assertTrue(retry.getSleepTimeMs(0)<300);
+        }
+    }
+
+    @Test
+    public void testSleepGrowsWithRetryCount() {
+        DecorrelatedJitterRetry retry = new DecorrelatedJitterRetry(10, 100000, 10);
+        assertTrue(average(retry, 5)>average(retry, 0) * 2);
+    }
+
+    @Test
+    public void testStopsAfterMaxRetries() {
+        DecorrelatedJitterRetry retry = new DecorrelatedJitterRetry(1, 5, 3);
+        List<Long> sleeps = new ArrayList<>();
+        for (int retryCount = 0; retryCount<3; retryCount++) {
+            assertTrue(retry.allowRetry(retryCount, 0, (time, unit) -> sleeps.add(unit.toMillis(time))));
+        }
+        assertFalse(retry.allowRetry(3, 0, (time, unit) -> sleeps.add(unit.toMillis(time))));
+        assertEquals(3, sleeps.size());
+    }
+
+    private static double average(DecorrelatedJitterRetry retry, int retryCount) {
+        long total = 0;
+        for (int i = 0; i<2000; i++) {
+            total += retry.getSleepTimeMs(retryCount);
+        }
+        return total / 2000.0;
+    }
+
+}
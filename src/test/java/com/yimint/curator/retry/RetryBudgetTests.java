@@ -0,0 +1,87 @@
+package com.yimint.curator.retry;
+
+import org.apache.curator.RetryPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTests {
+
+    @Test
+    public void testRetriesLimitedByRequestRatio() throws Exception {
+        RetryBudget budget = new RetryBudget(0.2, 0, 10000);
+        for (int i = 0; i<10; i++) {
+            budget.call(() -> null);
+        }
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+        assertEquals(10, budget.getRequests());
+        assertEquals(2, budget.getRetries());
+        assertEquals(1, budget.getRejected());
+    }
+
+    @Test
+    public void testMinimumRetriesWithoutTraffic() {
+        RetryBudget budget = new RetryBudget(0.1, 1, 2000);
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    public void testBudgetedPolicyStopsWhenExhausted() throws Exception {
+        RetryBudget budget = new RetryBudget(0.1, 0, 10000);
+        List<Long> sleeps = new ArrayList<>();
+        RetryPolicy policy = new BudgetedRetryPolicy((retryCount, elapsed, sleeper) -> {
+            try {
+                sleeper.sleepFor(10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            return true;
+        }, budget);
+        for (int i = 0; i<9; i++) {
+            budget.call(() -> null);
+        }
+        // 第10个请求得到一次重试预算，第二次重试被拒绝，被拒绝的重试不等待退避时间
+        boolean[] allowed = new boolean[2];
+        budget.call(() -> {
+            allowed[0] = policy.allowRetry(0, 0, (time, unit) -> sleeps.add(unit.toMillis(time)));
+            allowed[1] = policy.allowRetry(1, 0, (time, unit) -> sleeps.add(unit.toMillis(time)));
+            return null;
+        });
+        assertTrue(allowed[0]);
+        assertFalse(allowed[1]);
+        assertEquals(1, sleeps.size());
+        assertEquals(10L, sleeps.get(0));
+    }
+
+    @Test
+    public void testDelegateRefusalDoesNotSpendBudget() throws Exception {
+        RetryBudget budget = new RetryBudget(0.1, 1, 1000);
+        RetryPolicy policy = new BudgetedRetryPolicy((retryCount, elapsed, sleeper) -> false, budget);
+        budget.call(() -> policy.allowRetry(0, 0, (time, unit) -> {
+        }));
+        assertEquals(0, budget.getRetries());
+        assertEquals(0, budget.getRejected());
+    }
+
+    @Test
+    public void testRetriesOutsideCallScopeAreNotBudgeted() {
+        RetryBudget budget = new RetryBudget(0.1, 0, 10000);
+        RetryPolicy policy = new BudgetedRetryPolicy((retryCount, elapsed, sleeper) -> true, budget);
+        // recipes、缓存等不经过call()的重试不受预算约束，也不计入统计
+        assertTrue(policy.allowRetry(0, 0, (time, unit) -> {
+        }));
+        assertEquals(0, budget.getRetries());
+        assertEquals(0, budget.getRejected());
+    }
+
+}